@@ -0,0 +1,137 @@
+package org.alfresco.benchmark;
+
+import org.alfresco.opensearch.search.HybridOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Controller exposing benchmarks of the search configuration, only available when "benchmark.enabled" is true.
+ */
+@RestController
+@RequestMapping("/benchmark")
+@ConditionalOnProperty(name = "benchmark.enabled", havingValue = "true")
+public class BenchmarkController {
+
+    @Autowired
+    private HybridBenchmark hybridBenchmark;
+
+    @Autowired
+    private ConcurrencyBenchmark concurrencyBenchmark;
+
+    @Autowired
+    private KnnBenchmark knnBenchmark;
+
+    @Autowired
+    private ModelBenchmark modelBenchmark;
+
+    @Autowired
+    private SparseBenchmark sparseBenchmark;
+
+    /**
+     * Compares latency and result quality of the normalized hybrid query with the legacy "bool" hybrid query.
+     *
+     * @param queries       the benchmark queries, with optional relevance judgments
+     * @param iterations    the number of timed passes over the queries
+     * @param weights       the keyword and neural weights to benchmark, optional
+     * @param normalization the score normalization technique to benchmark, optional
+     * @param combination   the score combination technique to benchmark, optional
+     * @return one result per hybrid implementation
+     * @throws Exception if a search fails
+     */
+    @PostMapping("/hybrid")
+    public List<BenchmarkResult> hybrid(
+            @RequestBody List<BenchmarkQuery> queries,
+            @RequestParam(defaultValue = "5") int iterations,
+            @RequestParam(required = false) List<Double> weights,
+            @RequestParam(required = false) String normalization,
+            @RequestParam(required = false) String combination) throws Exception {
+        return hybridBenchmark.run(queries, iterations, new HybridOptions(weights, normalization, combination));
+    }
+
+    /**
+     * Compares the throughput of blocking searches at high concurrency on platform and virtual threads.
+     *
+     * @param queries     the benchmark queries
+     * @param searchType  the type of search to run
+     * @param requests    the total number of searches
+     * @param concurrency the number of concurrent callers
+     * @return one result per thread mode
+     * @throws Exception if the benchmark is interrupted
+     */
+    @PostMapping("/concurrency")
+    public List<BenchmarkResult> concurrency(
+            @RequestBody List<BenchmarkQuery> queries,
+            @RequestParam(defaultValue = "neural") String searchType,
+            @RequestParam(defaultValue = "5000") int requests,
+            @RequestParam(defaultValue = "1000") int concurrency) throws Exception {
+        return concurrencyBenchmark.run(queries, searchType, requests, concurrency);
+    }
+
+    /**
+     * Compares recall, latency, memory and disk usage of kNN index profiles, on sample indices copied from
+     * the content index.
+     *
+     * @param request    the index profiles and the benchmark queries
+     * @param k          the number of nearest neighbours
+     * @param iterations the number of timed passes over the queries
+     * @param sampleSize the maximum number of segments copied to every sample index
+     * @param keep       whether to keep the sample indices for later runs
+     * @return one result per index profile
+     * @throws Exception if a sample index cannot be built or a search fails
+     */
+    @PostMapping("/knn")
+    public List<BenchmarkResult> knn(
+            @RequestBody KnnBenchmarkRequest request,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(defaultValue = "5") int iterations,
+            @RequestParam(defaultValue = "100000") int sampleSize,
+            @RequestParam(defaultValue = "false") boolean keep) throws Exception {
+        return knnBenchmark.run(request.getProfiles(), request.getQueries(), k, iterations, sampleSize, keep);
+    }
+
+    /**
+     * Compares the inference throughput and the embedding dimension of text embedding model variants.
+     *
+     * @param request    the model variants and the corpus to embed
+     * @param batchSize  the number of texts per predict request
+     * @param iterations the number of timed passes over the corpus
+     * @param sampleSize the number of segments of the content index embedded when no corpus is given
+     * @param keep       whether to keep the variants deployed
+     * @return one result per model variant
+     * @throws Exception if a variant cannot be deployed or an inference fails
+     */
+    @PostMapping("/models")
+    public List<BenchmarkResult> models(
+            @RequestBody ModelBenchmarkRequest request,
+            @RequestParam(defaultValue = "16") int batchSize,
+            @RequestParam(defaultValue = "3") int iterations,
+            @RequestParam(defaultValue = "200") int sampleSize,
+            @RequestParam(defaultValue = "false") boolean keep) throws Exception {
+        return modelBenchmark.run(request.getVariants(), request.getCorpus(), batchSize, iterations, sampleSize, keep);
+    }
+
+    /**
+     * Compares latency, memory and result quality of dense vector search and neural sparse search
+     * on the content index.
+     *
+     * @param queries    the benchmark queries, with optional relevance judgments
+     * @param iterations the number of timed passes over the queries
+     * @param sampleSize the number of segments read to measure the sparse vectors
+     * @return one result for dense search and one for sparse search
+     * @throws Exception if a search fails
+     */
+    @PostMapping("/sparse")
+    public List<BenchmarkResult> sparse(
+            @RequestBody List<BenchmarkQuery> queries,
+            @RequestParam(defaultValue = "5") int iterations,
+            @RequestParam(defaultValue = "1000") int sampleSize) throws Exception {
+        return sparseBenchmark.run(queries, iterations, sampleSize);
+    }
+}
@@ -0,0 +1,35 @@
+package org.alfresco.benchmark;
+
+import java.util.List;
+
+/**
+ * Query of a benchmark, with the ids of the documents judged relevant for it when available.
+ */
+public class BenchmarkQuery {
+    private String query;
+    private List<String> relevant;
+
+    public BenchmarkQuery() {
+    }
+
+    public BenchmarkQuery(String query, List<String> relevant) {
+        this.query = query;
+        this.relevant = relevant;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public List<String> getRelevant() {
+        return relevant;
+    }
+
+    public void setRelevant(List<String> relevant) {
+        this.relevant = relevant;
+    }
+}
@@ -0,0 +1,42 @@
+package org.alfresco.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of a benchmark for one of the compared variants: latency statistics and named quality or cost metrics.
+ */
+public class BenchmarkResult {
+    private final String name;
+    private final LatencyStats latency;
+    private final Map<String, Double> metrics = new LinkedHashMap<>();
+
+    public BenchmarkResult(String name, LatencyStats latency) {
+        this.name = name;
+        this.latency = latency;
+    }
+
+    /**
+     * Adds a metric to the result.
+     *
+     * @param metric the metric name
+     * @param value  the metric value
+     * @return this result
+     */
+    public BenchmarkResult metric(String metric, double value) {
+        metrics.put(metric, value);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    public Map<String, Double> getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,100 @@
+package org.alfresco.benchmark;
+
+import org.alfresco.opensearch.search.Search;
+import org.alfresco.opensearch.search.SearchOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark comparing the throughput of blocking searches at high concurrency on platform threads,
+ * bounded like the Tomcat thread pool, and on virtual threads.
+ */
+@Component
+public class ConcurrencyBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyBenchmark.class);
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int platformThreads;
+
+    @Autowired
+    private Search search;
+
+    /**
+     * Runs the given number of searches, cycling over the queries, with the given number of concurrent callers.
+     * Each caller runs a blocking search, as a servlet request thread does. Platform threads are limited to the
+     * size of the Tomcat thread pool, while virtual threads, only available on Java 21, are not.
+     * Reports latency percentiles, throughput in searches per second and the number of failed searches.
+     *
+     * @param queries     the benchmark queries
+     * @param searchType  the type of search to run
+     * @param requests    the total number of searches
+     * @param concurrency the number of concurrent callers
+     * @return one result per thread mode
+     * @throws Exception if the benchmark is interrupted
+     */
+    public List<BenchmarkResult> run(List<BenchmarkQuery> queries, String searchType, int requests, int concurrency)
+            throws Exception {
+        List<BenchmarkResult> results = new ArrayList<>();
+
+        ExecutorService platformExecutor = Executors.newFixedThreadPool(Math.min(concurrency, platformThreads));
+        try {
+            results.add(run("platform", platformExecutor, queries, searchType, requests));
+        } finally {
+            platformExecutor.shutdown();
+        }
+
+        if (Runtime.version().feature() >= 21) {
+            SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("benchmark-");
+            virtualExecutor.setVirtualThreads(true);
+            virtualExecutor.setConcurrencyLimit(concurrency);
+            results.add(run("virtual", virtualExecutor, queries, searchType, requests));
+        } else {
+            LOG.warn("Virtual threads require Java 21, running on Java {}", Runtime.version().feature());
+        }
+        return results;
+    }
+
+    private BenchmarkResult run(String name, Executor executor, List<BenchmarkQuery> queries, String searchType,
+                                int requests) {
+        SearchOptions options = SearchOptions.builder().cached(false).build();
+        List<Long> durations = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger errors = new AtomicInteger();
+
+        long start = System.nanoTime();
+        CompletableFuture<?>[] searches = new CompletableFuture[requests];
+        for (int i = 0; i < requests; i++) {
+            String query = queries.get(i % queries.size()).getQuery();
+            searches[i] = CompletableFuture.runAsync(() -> {
+                long searchStart = System.nanoTime();
+                try {
+                    search.search(query, searchType, options);
+                    durations.add(System.nanoTime() - searchStart);
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+            }, executor);
+        }
+        CompletableFuture.allOf(searches).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        BenchmarkResult result = new BenchmarkResult(name, LatencyStats.of(durations))
+                .metric("throughput", durations.size() / seconds)
+                .metric("errors", errors.get());
+        LOG.info("Concurrency benchmark on {} threads: {} searches/s, p99 {} ms", name,
+                result.getMetrics().get("throughput"), result.getLatency().getP99());
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package org.alfresco.benchmark;
+
+import org.alfresco.opensearch.search.HybridOptions;
+import org.alfresco.opensearch.search.Search;
+import org.alfresco.opensearch.search.SearchOptions;
+import org.alfresco.rest.DocumentBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark comparing the normalized "hybrid" query with the legacy "bool" query adding raw BM25 and kNN scores.
+ */
+@Component
+public class HybridBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(HybridBenchmark.class);
+
+    private static final List<String> SEARCH_TYPES = List.of("hybrid", "hybrid-bool");
+
+    @Autowired
+    private Search search;
+
+    /**
+     * Runs every query against both hybrid implementations, after one untimed warm-up pass.
+     * Reports latency percentiles, and for queries with relevance judgments the mean reciprocal rank and recall.
+     * The overlap between the results of both implementations is reported for the normalized hybrid query.
+     *
+     * @param queries    the benchmark queries
+     * @param iterations the number of timed passes over the queries
+     * @param hybrid     the hybrid normalization settings to benchmark, null for the configured search pipeline
+     * @return one result per hybrid implementation
+     * @throws Exception if a search fails
+     */
+    public List<BenchmarkResult> run(List<BenchmarkQuery> queries, int iterations, HybridOptions hybrid) throws Exception {
+        SearchOptions options = SearchOptions.builder().hybrid(hybrid).cached(false).build();
+        Map<String, Map<String, List<String>>> resultIds = new HashMap<>();
+        List<BenchmarkResult> results = new ArrayList<>();
+
+        for (String searchType : SEARCH_TYPES) {
+            Map<String, List<String>> idsByQuery = new HashMap<>();
+            for (BenchmarkQuery query : queries) {
+                idsByQuery.put(query.getQuery(), toIds(search.search(query.getQuery(), searchType, options)));
+            }
+            resultIds.put(searchType, idsByQuery);
+
+            List<Long> durations = new ArrayList<>();
+            for (int i = 0; i < iterations; i++) {
+                for (BenchmarkQuery query : queries) {
+                    long start = System.nanoTime();
+                    search.search(query.getQuery(), searchType, options);
+                    durations.add(System.nanoTime() - start);
+                }
+            }
+
+            BenchmarkResult result = new BenchmarkResult(searchType, LatencyStats.of(durations));
+            List<BenchmarkQuery> judged = queries.stream()
+                    .filter(query -> query.getRelevant() != null && !query.getRelevant().isEmpty())
+                    .toList();
+            if (!judged.isEmpty()) {
+                result.metric("mrr", judged.stream()
+                        .mapToDouble(query -> RelevanceMetrics.reciprocalRank(idsByQuery.get(query.getQuery()), query.getRelevant()))
+                        .average().orElse(0));
+                result.metric("recall", judged.stream()
+                        .mapToDouble(query -> RelevanceMetrics.recall(idsByQuery.get(query.getQuery()), query.getRelevant()))
+                        .average().orElse(0));
+            }
+            results.add(result);
+            LOG.info("Hybrid benchmark for {}: p50 {} ms, p99 {} ms", searchType, result.getLatency().getP50(), result.getLatency().getP99());
+        }
+
+        results.get(0).metric("overlapWithBool", queries.stream()
+                .mapToDouble(query -> RelevanceMetrics.overlap(
+                        resultIds.get(SEARCH_TYPES.get(0)).get(query.getQuery()),
+                        resultIds.get(SEARCH_TYPES.get(1)).get(query.getQuery())))
+                .average().orElse(1));
+        return results;
+    }
+
+    private static List<String> toIds(List<DocumentBean> documents) {
+        return documents.stream().map(DocumentBean::getUuid).toList();
+    }
+}
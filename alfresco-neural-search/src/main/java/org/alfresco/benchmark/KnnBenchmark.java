@@ -0,0 +1,296 @@
+package org.alfresco.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.alfresco.opensearch.client.OpenSearchClient;
+import org.alfresco.opensearch.index.ClusterVersion;
+import org.alfresco.opensearch.index.Index;
+import org.alfresco.opensearch.index.KnnIndexProfile;
+import org.alfresco.opensearch.search.QueryEmbeddings;
+import org.alfresco.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing kNN index profiles: engine, space type, HNSW parameters, vector quantization and shard count.
+ * Every profile is applied to a sample index filled from the content index, whose approximate results are compared
+ * with an exact search to compute the recall, along with search latency, memory and disk usage.
+ */
+@Component
+public class KnnBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(KnnBenchmark.class);
+
+    private static final long TASK_POLL_INTERVAL_MS = 1000;
+    private static final long TASK_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
+    // Default number of neighbours of every node of the HNSW graph, used to estimate the graph memory
+    private static final int DEFAULT_M = 16;
+
+    @Value("${opensearch.index.name}")
+    private String indexName;
+
+    @Value("${opensearch.index.source.excludes.vector:false}")
+    private boolean excludeVectorFromSource;
+
+    @Value("${opensearch.ingest.pipeline.name}")
+    private String ingestPipelineName;
+
+    @Autowired
+    private Index index;
+
+    @Autowired
+    private OpenSearchClient openSearchClient;
+
+    @Autowired
+    private QueryEmbeddings queryEmbeddings;
+
+    @Autowired
+    private ClusterVersion clusterVersion;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Runs the queries against a sample index built with every profile, after one untimed pass computing the recall
+     * against an exact search. Profiles sharing a name with an existing sample index reuse it.
+     * Reports latency percentiles, the recall at k, the size of the graphs loaded in native memory for the faiss
+     * and nmslib engines, and the store size of the index. Every profile also reports the compression factor of
+     * its vectors and the estimated memory of its graphs, and quantized profiles the recall of the first phase
+     * alone, so that the recall recovered by rescoring with full-precision vectors is measured.
+     *
+     * @param profiles   the kNN index profiles to compare
+     * @param queries    the benchmark queries
+     * @param k          the number of nearest neighbours
+     * @param iterations the number of timed passes over the queries
+     * @param sampleSize the maximum number of segments copied from the content index
+     * @param keep       whether to keep the sample indices, so that later runs reuse them
+     * @return one result per profile
+     * @throws Exception if the sample index cannot be built or a search fails
+     */
+    public List<BenchmarkResult> run(List<KnnIndexProfile> profiles, List<BenchmarkQuery> queries, int k,
+                                     int iterations, int sampleSize, boolean keep) throws Exception {
+        if (queries == null || queries.isEmpty()) {
+            throw new IllegalArgumentException("The kNN benchmark requires at least one query");
+        }
+        Map<String, float[]> embeddings = new LinkedHashMap<>();
+        for (BenchmarkQuery query : queries) {
+            float[] embedding = queryEmbeddings.getEmbedding(query.getQuery());
+            if (embedding == null) {
+                throw new IllegalStateException("The kNN benchmark requires query embeddings, which are not available");
+            }
+            embeddings.put(query.getQuery(), embedding);
+        }
+        int dimension = embeddings.values().iterator().next().length;
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (KnnIndexProfile profile : profiles) {
+            profile.validate(clusterVersion);
+            String sampleIndex = indexName + "-bench-" + profile.getName();
+            try {
+                if (!index.existIndex(sampleIndex)) {
+                    createSample(sampleIndex, profile, dimension, sampleSize);
+                }
+                if (profile.isNative()) {
+                    openSearchClient.executeRequest("GET", "/_plugins/_knn/warmup/" + sampleIndex, null);
+                }
+                results.add(run(sampleIndex, profile, embeddings, k, iterations));
+            } finally {
+                if (!keep && index.existIndex(sampleIndex)) {
+                    index.deleteIndex(sampleIndex);
+                }
+            }
+        }
+        return results;
+    }
+
+    private BenchmarkResult run(String sampleIndex, KnnIndexProfile profile, Map<String, float[]> embeddings, int k,
+                                int iterations) throws IOException {
+        Map<String, List<String>> exactIds = new HashMap<>();
+        Map<String, List<String>> approximateIds = new HashMap<>();
+        Map<String, List<String>> firstPhaseIds = new HashMap<>();
+        for (Map.Entry<String, float[]> embedding : embeddings.entrySet()) {
+            exactIds.put(embedding.getKey(), toIds(search(sampleIndex, buildExactQuery(embedding.getValue(), k, profile))));
+            approximateIds.put(embedding.getKey(),
+                    toIds(search(sampleIndex, buildKnnQuery(embedding.getValue(), k, profile, true))));
+            if (profile.isQuantized()) {
+                firstPhaseIds.put(embedding.getKey(),
+                        toIds(search(sampleIndex, buildKnnQuery(embedding.getValue(), k, profile, false))));
+            }
+        }
+
+        List<Long> durations = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            for (float[] embedding : embeddings.values()) {
+                String query = buildKnnQuery(embedding, k, profile, true);
+                long start = System.nanoTime();
+                search(sampleIndex, query);
+                durations.add(System.nanoTime() - start);
+            }
+        }
+
+        BenchmarkResult result = new BenchmarkResult(profile.getName(), LatencyStats.of(durations));
+        result.metric("recall@" + k, embeddings.keySet().stream()
+                .mapToDouble(query -> RelevanceMetrics.recall(approximateIds.get(query), exactIds.get(query)))
+                .average().orElse(0));
+        if (profile.isQuantized()) {
+            result.metric("firstPhaseRecall@" + k, embeddings.keySet().stream()
+                    .mapToDouble(query -> RelevanceMetrics.recall(firstPhaseIds.get(query), exactIds.get(query)))
+                    .average().orElse(0));
+        }
+        if (profile.isNative()) {
+            result.metric("nativeMemoryKb", getNativeMemory(sampleIndex));
+        }
+        JsonNode stats = getStats(sampleIndex);
+        int dimension = embeddings.values().iterator().next().length;
+        result.metric("compression", profile.getCompression());
+        result.metric("estimatedGraphMemoryBytes", estimateGraphMemory(profile, dimension,
+                stats.path("docs").path("count").asLong()));
+        result.metric("storeSizeBytes", stats.path("store").path("size_in_bytes").asDouble());
+        LOG.info("kNN benchmark for profile {}: p50 {} ms, p99 {} ms, metrics {}", profile,
+                result.getLatency().getP50(), result.getLatency().getP99(), result.getMetrics());
+        return result;
+    }
+
+    /**
+     * Creates a sample index with a profile, and copies segments of the content index into it.
+     * When the embedding vector is kept out of the stored "_source" of the content index, the copy goes through
+     * the ingest pipeline to compute the embeddings again.
+     */
+    private void createSample(String sampleIndex, KnnIndexProfile profile, int dimension, int sampleSize)
+            throws Exception {
+        index.createKnnIndex(sampleIndex, profile, dimension, null);
+        LOG.info("Copying up to {} segments to sample index {} with profile {}", sampleSize, sampleIndex, profile);
+        String body = """
+                {
+                  "source": { "index": "%s" },
+                  "dest": { "index": "%s"%s }
+                }
+                """.formatted(indexName, sampleIndex,
+                excludeVectorFromSource ? ", \"pipeline\": \"%s\"".formatted(ingestPipelineName) : "");
+        JsonNode task = objectMapper.readTree(openSearchClient.executeRequest("POST",
+                "/_reindex?wait_for_completion=false&max_docs=" + sampleSize, body));
+        waitForTask(task.path("task").asText());
+        openSearchClient.executeRequest("POST", "/" + sampleIndex + "/_refresh", null);
+    }
+
+    /**
+     * Waits for the copy of segments to the sample index. The copy is cancelled when it does not complete in time,
+     * as a reindex task keeps running on the cluster after the benchmark gives up.
+     */
+    private void waitForTask(String taskId) throws Exception {
+        long deadline = System.currentTimeMillis() + TASK_TIMEOUT_MS;
+        JsonNode status;
+        do {
+            if (System.currentTimeMillis() > deadline) {
+                openSearchClient.executeRequest("POST", "/_tasks/" + taskId + "/_cancel", null);
+                throw new IllegalStateException("Copy of segments to the sample index did not complete in "
+                        + TASK_TIMEOUT_MS + " ms, task " + taskId + " has been cancelled");
+            }
+            Thread.sleep(TASK_POLL_INTERVAL_MS);
+            status = objectMapper.readTree(openSearchClient.executeRequest("GET", "/_tasks/" + taskId, null));
+        } while (!status.path("completed").asBoolean());
+        JsonNode failures = status.path("response").path("failures");
+        if (status.has("error") || failures.size() > 0) {
+            throw new IllegalStateException("Copy of segments to the sample index failed: "
+                    + (status.has("error") ? status.get("error") : failures.get(0)));
+        }
+    }
+
+    private JsonNode search(String sampleIndex, String query) throws IOException {
+        return objectMapper.readTree(openSearchClient.executeRequest("POST", "/" + sampleIndex + "/_search", query));
+    }
+
+    /**
+     * Builds an approximate kNN query, with the ef_search of the profile as a query parameter of the lucene engine.
+     * On quantized vectors, the query is either the two-phase query run by searches, or its first phase alone.
+     */
+    private static String buildKnnQuery(float[] embedding, int k, KnnIndexProfile profile, boolean rescore) {
+        String methodParameters = profile.getEfSearch() != null && !profile.isNative()
+                ? ",\n\"method_parameters\": { \"ef_search\": %d }".formatted(profile.getEfSearch())
+                : "";
+        String vector = JsonUtils.toJsonArray(embedding);
+        String knnQuery = """
+                {
+                  "knn": {
+                    "%s": {
+                      "vector": %s,
+                      "k": %d%s
+                    }
+                  }
+                }""".formatted(Index.EMBEDDING_FIELD, vector, rescore ? profile.getCandidates(k) : k, methodParameters);
+        return """
+                {
+                  "size": %d,
+                  "_source": false,
+                  "query": %s
+                }""".formatted(k, rescore ? profile.buildRescoredQuery(knnQuery, vector) : knnQuery);
+    }
+
+    /**
+     * Builds an exact search scoring every segment with the space type of the profile, as reference for the recall.
+     */
+    private static String buildExactQuery(float[] embedding, int k, KnnIndexProfile profile) {
+        return """
+                {
+                  "size": %d,
+                  "_source": false,
+                  "query": {
+                    "script_score": {
+                      "query": { "match_all": {} },
+                      "script": {
+                        "lang": "knn",
+                        "source": "knn_score",
+                        "params": {
+                          "field": "%s",
+                          "query_value": %s,
+                          "space_type": "%s"
+                        }
+                      }
+                    }
+                  }
+                }""".formatted(k, Index.EMBEDDING_FIELD, JsonUtils.toJsonArray(embedding), profile.getSpaceType());
+    }
+
+    private static List<String> toIds(JsonNode response) {
+        List<String> ids = new ArrayList<>();
+        response.path("hits").path("hits").forEach(hit -> ids.add(hit.path("_id").asText()));
+        return ids;
+    }
+
+    /**
+     * Gets the size of the graphs of an index loaded in native memory, summed over the nodes.
+     */
+    double getNativeMemory(String sampleIndex) throws IOException {
+        JsonNode nodes = objectMapper.readTree(openSearchClient.executeRequest("GET",
+                "/_plugins/_knn/stats/indices_in_cache", null)).path("nodes");
+        double memory = 0;
+        for (JsonNode node : nodes) {
+            memory += node.path("indices_in_cache").path(sampleIndex).path("graph_memory_usage").asDouble();
+        }
+        return memory;
+    }
+
+    /**
+     * Estimates the memory of the HNSW graphs of an index, as 1.1 * (4 * dimension / compression + 8 * m) bytes
+     * per vector and replica.
+     */
+    static double estimateGraphMemory(KnnIndexProfile profile, int dimension, long vectors) {
+        int m = profile.getM() != null ? profile.getM() : DEFAULT_M;
+        return 1.1 * (4.0 * dimension / profile.getCompression() + 8 * m) * vectors;
+    }
+
+    private JsonNode getStats(String sampleIndex) throws IOException {
+        return objectMapper.readTree(openSearchClient.executeRequest("GET", "/" + sampleIndex + "/_stats/docs,store", null))
+                .path("_all").path("primaries");
+    }
+}
@@ -0,0 +1,37 @@
+package org.alfresco.benchmark;
+
+import org.alfresco.opensearch.index.KnnIndexProfile;
+
+import java.util.List;
+
+/**
+ * Body of a kNN benchmark request: the index profiles to compare and the queries to run against them.
+ */
+public class KnnBenchmarkRequest {
+    private List<KnnIndexProfile> profiles;
+    private List<BenchmarkQuery> queries;
+
+    public KnnBenchmarkRequest() {
+    }
+
+    public KnnBenchmarkRequest(List<KnnIndexProfile> profiles, List<BenchmarkQuery> queries) {
+        this.profiles = profiles;
+        this.queries = queries;
+    }
+
+    public List<KnnIndexProfile> getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(List<KnnIndexProfile> profiles) {
+        this.profiles = profiles;
+    }
+
+    public List<BenchmarkQuery> getQueries() {
+        return queries;
+    }
+
+    public void setQueries(List<BenchmarkQuery> queries) {
+        this.queries = queries;
+    }
+}
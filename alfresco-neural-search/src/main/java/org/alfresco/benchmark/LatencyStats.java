@@ -0,0 +1,84 @@
+package org.alfresco.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Latency percentiles, in milliseconds, of a series of timed operations.
+ */
+public class LatencyStats {
+
+    private final int count;
+    private final double mean;
+    private final double p50;
+    private final double p95;
+    private final double p99;
+    private final double max;
+
+    public LatencyStats(int count, double mean, double p50, double p95, double p99, double max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    /**
+     * Computes latency statistics from durations measured with {@link System#nanoTime()}.
+     *
+     * @param durationsNanos the measured durations, in nanoseconds
+     * @return the latency statistics, in milliseconds
+     */
+    public static LatencyStats of(List<Long> durationsNanos) {
+        if (durationsNanos.isEmpty()) {
+            return new LatencyStats(0, 0, 0, 0, 0, 0);
+        }
+        List<Long> sorted = new ArrayList<>(durationsNanos);
+        Collections.sort(sorted);
+        double mean = sorted.stream().mapToLong(Long::longValue).average().orElse(0);
+        return new LatencyStats(sorted.size(), toMillis(mean), percentile(sorted, 0.50), percentile(sorted, 0.95),
+                percentile(sorted, 0.99), toMillis(sorted.get(sorted.size() - 1)));
+    }
+
+    /**
+     * Gets a percentile of sorted durations using the nearest-rank method.
+     *
+     * @param sorted     the durations sorted in ascending order, in nanoseconds
+     * @param percentile the percentile, between 0 and 1
+     * @return the percentile, in milliseconds
+     */
+    private static double percentile(List<Long> sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile * sorted.size());
+        return toMillis(sorted.get(Math.max(0, rank - 1)));
+    }
+
+    private static double toMillis(double nanos) {
+        return Math.round(nanos / 1_000) / 1_000.0;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP95() {
+        return p95;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,168 @@
+package org.alfresco.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.alfresco.opensearch.client.OpenSearchClient;
+import org.alfresco.opensearch.index.Model;
+import org.alfresco.opensearch.index.ModelGroups;
+import org.alfresco.opensearch.index.ModelMetadata;
+import org.alfresco.opensearch.index.OpenSearchConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark comparing the inference throughput of text embedding model variants, such as the TorchScript and ONNX
+ * formats of a pretrained model, or a smaller model with the same embedding dimension.
+ * Every variant is registered and deployed when missing, then embeds the same corpus through the predict API.
+ */
+@Component
+public class ModelBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(ModelBenchmark.class);
+
+    @Value("${opensearch.index.name}")
+    private String indexName;
+
+    @Autowired
+    private Model model;
+
+    @Autowired
+    private ModelGroups modelGroups;
+
+    @Autowired
+    private OpenSearchConfiguration openSearchConfiguration;
+
+    @Autowired
+    private OpenSearchClient openSearchClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Embeds the corpus with every variant in batches, after one untimed warm-up batch.
+     * Reports latency percentiles per batch, the throughput in segments per second and the embedding dimension.
+     * Variants with the dimension of the deployed model, which can replace it without reindexing, also report
+     * the mean cosine similarity of their embeddings with the embeddings of the deployed model.
+     *
+     * @param variants   the model variants to compare
+     * @param corpus     the texts to embed, or null to use segments of the content index
+     * @param batchSize  the number of texts per predict request
+     * @param iterations the number of timed passes over the corpus
+     * @param sampleSize the number of segments of the content index used when no corpus is given
+     * @param keep       whether to keep the variants deployed once benchmarked
+     * @return one result per variant
+     * @throws Exception if a variant cannot be deployed or an inference fails
+     */
+    public List<BenchmarkResult> run(List<ModelVariant> variants, List<String> corpus, int batchSize, int iterations,
+                                     int sampleSize, boolean keep) throws Exception {
+        List<String> texts = corpus != null && !corpus.isEmpty() ? corpus : sampleCorpus(sampleSize);
+        if (texts.isEmpty()) {
+            throw new IllegalArgumentException("The model benchmark requires a corpus or an indexed content");
+        }
+        String currentModelId = openSearchConfiguration.getModelId();
+        ModelMetadata currentModel = openSearchConfiguration.getModelMetadata();
+        List<float[]> currentEmbeddings = currentModelId != null ? embed(currentModelId, texts, batchSize) : null;
+        String modelGroupId = openSearchConfiguration.getModelGroupId() != null
+                ? openSearchConfiguration.getModelGroupId()
+                : modelGroups.resolve(null);
+
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (ModelVariant variant : variants) {
+            String modelId = model.getModelId(variant.getName(), variant.getVersion(), variant.getFormat());
+            if (modelId == null) {
+                modelId = model.apply(variant.getName(), variant.getVersion(), variant.getFormat(), modelGroupId);
+            } else if (!modelId.equals(currentModelId)) {
+                model.deploy(modelId);
+            }
+            try {
+                results.add(run(variant, modelId, texts, batchSize, iterations, currentModel, currentEmbeddings));
+            } finally {
+                if (!keep && !modelId.equals(currentModelId)) {
+                    model.undeploy(modelId);
+                }
+            }
+        }
+        return results;
+    }
+
+    private BenchmarkResult run(ModelVariant variant, String modelId, List<String> texts, int batchSize,
+                                int iterations, ModelMetadata currentModel, List<float[]> currentEmbeddings)
+            throws IOException {
+        ModelMetadata metadata = model.getModelMetadata(modelId);
+        model.predict(modelId, texts.subList(0, Math.min(batchSize, texts.size())));
+
+        List<Long> durations = new ArrayList<>();
+        List<float[]> embeddings = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            embeddings = new ArrayList<>();
+            for (int from = 0; from < texts.size(); from += batchSize) {
+                long batchStart = System.nanoTime();
+                embeddings.addAll(model.predict(modelId, texts.subList(from, Math.min(from + batchSize, texts.size()))));
+                durations.add(System.nanoTime() - batchStart);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        BenchmarkResult result = new BenchmarkResult(variant.toString(), LatencyStats.of(durations));
+        result.metric("segmentsPerSecond", seconds > 0 ? (double) texts.size() * iterations / seconds : 0);
+        result.metric("embeddingDimension", metadata.getEmbeddingDimension());
+        if (currentModel != null) {
+            boolean compatible = metadata.getEmbeddingDimension() == currentModel.getEmbeddingDimension();
+            result.metric("dimensionCompatible", compatible ? 1 : 0);
+            if (compatible && currentEmbeddings != null && iterations > 0) {
+                double similarity = 0;
+                for (int i = 0; i < texts.size(); i++) {
+                    similarity += cosine(embeddings.get(i), currentEmbeddings.get(i));
+                }
+                result.metric("meanCosineToCurrent", similarity / texts.size());
+            }
+        }
+        LOG.info("Model benchmark for {}: {} segments/s, p50 {} ms per batch of {}, metrics {}", variant,
+                result.getMetrics().get("segmentsPerSecond"), result.getLatency().getP50(), batchSize,
+                result.getMetrics());
+        return result;
+    }
+
+    private List<float[]> embed(String modelId, List<String> texts, int batchSize) throws IOException {
+        List<float[]> embeddings = new ArrayList<>();
+        for (int from = 0; from < texts.size(); from += batchSize) {
+            embeddings.addAll(model.predict(modelId, texts.subList(from, Math.min(from + batchSize, texts.size()))));
+        }
+        return embeddings;
+    }
+
+    /**
+     * Reads segment texts of the content index, in database ID order so that successive runs embed the same corpus.
+     */
+    private List<String> sampleCorpus(int sampleSize) throws IOException {
+        String query = """
+                {
+                  "size": %d,
+                  "_source": ["text"],
+                  "sort": [ { "dbid": "asc" }, { "_id": "asc" } ]
+                }""".formatted(sampleSize);
+        JsonNode response = objectMapper.readTree(openSearchClient.executeRequest("POST",
+                "/" + indexName + "/_search", query));
+        List<String> texts = new ArrayList<>();
+        response.path("hits").path("hits").forEach(hit -> texts.add(hit.path("_source").path("text").asText()));
+        return texts;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA > 0 && normB > 0 ? dot / Math.sqrt(normA * normB) : 0;
+    }
+}
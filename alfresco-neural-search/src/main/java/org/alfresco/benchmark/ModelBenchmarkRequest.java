@@ -0,0 +1,40 @@
+package org.alfresco.benchmark;
+
+import java.util.List;
+
+/**
+ * Body of a model benchmark request: the model variants to compare and the corpus of texts they embed.
+ */
+public class ModelBenchmarkRequest {
+    private List<ModelVariant> variants;
+    private List<String> corpus;
+
+    public ModelBenchmarkRequest() {
+    }
+
+    public ModelBenchmarkRequest(List<ModelVariant> variants, List<String> corpus) {
+        this.variants = variants;
+        this.corpus = corpus;
+    }
+
+    public List<ModelVariant> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(List<ModelVariant> variants) {
+        this.variants = variants;
+    }
+
+    /**
+     * Gets the texts embedded by every variant.
+     *
+     * @return the corpus, or null to use segments of the content index
+     */
+    public List<String> getCorpus() {
+        return corpus;
+    }
+
+    public void setCorpus(List<String> corpus) {
+        this.corpus = corpus;
+    }
+}
@@ -0,0 +1,53 @@
+package org.alfresco.benchmark;
+
+/**
+ * Variant of a pretrained text embedding model to benchmark: its name, version and format.
+ */
+public class ModelVariant {
+    private String name;
+    private String version = "1.0.1";
+    private String format = "TORCH_SCRIPT";
+
+    public ModelVariant() {
+    }
+
+    public ModelVariant(String name, String version, String format) {
+        this.name = name;
+        this.version = version;
+        this.format = format;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    /**
+     * Gets the model format, "TORCH_SCRIPT" or "ONNX".
+     *
+     * @return the model format
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    @Override
+    public String toString() {
+        return name + ":" + version + ":" + format;
+    }
+}
@@ -0,0 +1,65 @@
+package org.alfresco.benchmark;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Result quality metrics comparing ranked result ids with reference ids.
+ */
+public final class RelevanceMetrics {
+
+    private RelevanceMetrics() {
+    }
+
+    /**
+     * Computes the reciprocal rank of the first relevant result.
+     *
+     * @param results  the ranked result ids
+     * @param relevant the relevant ids
+     * @return 1 / rank of the first relevant result, 0 if none is found
+     */
+    public static double reciprocalRank(List<String> results, Collection<String> relevant) {
+        for (int i = 0; i < results.size(); i++) {
+            if (relevant.contains(results.get(i))) {
+                return 1.0 / (i + 1);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Computes the share of reference ids found in the results, e.g. recall@k against exact kNN results.
+     *
+     * @param results   the result ids
+     * @param reference the reference ids
+     * @return the recall, between 0 and 1 (1 when there is no reference id)
+     */
+    public static double recall(Collection<String> results, Collection<String> reference) {
+        if (reference.isEmpty()) {
+            return 1;
+        }
+        Set<String> found = new HashSet<>(reference);
+        found.retainAll(new HashSet<>(results));
+        return (double) found.size() / new HashSet<>(reference).size();
+    }
+
+    /**
+     * Computes the Jaccard similarity of two result sets.
+     *
+     * @param first  the first result ids
+     * @param second the second result ids
+     * @return the size of the intersection divided by the size of the union, 1 when both are empty
+     */
+    public static double overlap(Collection<String> first, Collection<String> second) {
+        Set<String> union = new HashSet<>(first);
+        union.addAll(second);
+        if (union.isEmpty()) {
+            return 1;
+        }
+        Set<String> intersection = new HashSet<>(first);
+        intersection.retainAll(new HashSet<>(second));
+        return (double) intersection.size() / union.size();
+    }
+}
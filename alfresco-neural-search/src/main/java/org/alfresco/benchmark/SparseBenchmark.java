@@ -0,0 +1,187 @@
+package org.alfresco.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.alfresco.embedding.EmbeddingProvider;
+import org.alfresco.opensearch.client.OpenSearchClient;
+import org.alfresco.opensearch.index.Index;
+import org.alfresco.opensearch.index.KnnIndexProfile;
+import org.alfresco.opensearch.index.SparseEncoding;
+import org.alfresco.opensearch.search.Search;
+import org.alfresco.opensearch.search.SearchOptions;
+import org.alfresco.rest.DocumentBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark comparing dense vector search with neural sparse search on the content index, which holds both
+ * the embedding and the sparse vector of every segment when neural sparse retrieval is enabled.
+ * Dense searches reuse cached query embeddings, so the inference time of their queries is measured separately.
+ */
+@Component
+public class SparseBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(SparseBenchmark.class);
+
+    private static final String DENSE = "neural";
+    private static final String SPARSE = "sparse";
+
+    @Value("${opensearch.index.name}")
+    private String indexName;
+
+    @Autowired
+    private Search search;
+
+    @Autowired
+    private Index index;
+
+    @Autowired
+    private SparseEncoding sparseEncoding;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    @Autowired
+    private KnnBenchmark knnBenchmark;
+
+    @Autowired
+    private OpenSearchClient openSearchClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Runs every query with dense and sparse searches, after one untimed pass collecting the results.
+     * Reports latency percentiles, and for queries with relevance judgments the mean reciprocal rank and recall.
+     * Dense searches also report the mean inference time of a query embedding and the memory of the HNSW graphs,
+     * loaded in native memory for the faiss and nmslib engines and estimated for every engine. Sparse searches
+     * report the overlap of their results with dense results, the mean number of tokens of the sparse vectors and
+     * the share of segments holding a sparse vector, lower than 1 until the content indexed before is reindexed.
+     *
+     * @param queries    the benchmark queries
+     * @param iterations the number of timed passes over the queries
+     * @param sampleSize the number of segments read to measure the sparse vectors
+     * @return one result for dense search and one for sparse search
+     * @throws Exception if a search fails
+     */
+    public List<BenchmarkResult> run(List<BenchmarkQuery> queries, int iterations, int sampleSize) throws Exception {
+        if (!sparseEncoding.isEnabled()) {
+            throw new IllegalArgumentException("The sparse benchmark requires opensearch.sparse.enabled");
+        }
+        if (queries == null || queries.isEmpty()) {
+            throw new IllegalArgumentException("The sparse benchmark requires at least one query");
+        }
+        SearchOptions options = SearchOptions.builder().cached(false).build();
+        Map<String, Map<String, List<String>>> resultIds = new HashMap<>();
+        List<BenchmarkResult> results = new ArrayList<>();
+
+        for (String searchType : List.of(DENSE, SPARSE)) {
+            Map<String, List<String>> idsByQuery = new HashMap<>();
+            for (BenchmarkQuery query : queries) {
+                idsByQuery.put(query.getQuery(), toIds(search.search(query.getQuery(), searchType, options)));
+            }
+            resultIds.put(searchType, idsByQuery);
+
+            List<Long> durations = new ArrayList<>();
+            for (int i = 0; i < iterations; i++) {
+                for (BenchmarkQuery query : queries) {
+                    long start = System.nanoTime();
+                    search.search(query.getQuery(), searchType, options);
+                    durations.add(System.nanoTime() - start);
+                }
+            }
+
+            BenchmarkResult result = new BenchmarkResult(searchType, LatencyStats.of(durations));
+            List<BenchmarkQuery> judged = queries.stream()
+                    .filter(query -> query.getRelevant() != null && !query.getRelevant().isEmpty())
+                    .toList();
+            if (!judged.isEmpty()) {
+                result.metric("mrr", judged.stream()
+                        .mapToDouble(query -> RelevanceMetrics.reciprocalRank(idsByQuery.get(query.getQuery()), query.getRelevant()))
+                        .average().orElse(0));
+                result.metric("recall", judged.stream()
+                        .mapToDouble(query -> RelevanceMetrics.recall(idsByQuery.get(query.getQuery()), query.getRelevant()))
+                        .average().orElse(0));
+            }
+            results.add(result);
+        }
+
+        long segments = count(null);
+        BenchmarkResult dense = results.get(0);
+        dense.metric("queryInferenceMs", measureInference(queries));
+        KnnIndexProfile profile = index.getKnnProfile();
+        if (profile.isNative()) {
+            dense.metric("nativeMemoryKb", knnBenchmark.getNativeMemory(indexName));
+        }
+        dense.metric("estimatedGraphMemoryBytes", KnnBenchmark.estimateGraphMemory(profile,
+                index.getEmbeddingDimension(), segments));
+
+        BenchmarkResult sparse = results.get(1);
+        sparse.metric("overlapWithDense", queries.stream()
+                .mapToDouble(query -> RelevanceMetrics.overlap(
+                        resultIds.get(DENSE).get(query.getQuery()),
+                        resultIds.get(SPARSE).get(query.getQuery())))
+                .average().orElse(1));
+        sparse.metric("meanSparseTokens", getMeanSparseTokens(sampleSize));
+        sparse.metric("sparseCoverage", segments > 0
+                ? (double) count("{ \"query\": { \"exists\": { \"field\": \"%s\" } } }".formatted(Index.SPARSE_FIELD))
+                        / segments
+                : 0);
+
+        for (BenchmarkResult result : results) {
+            LOG.info("Sparse benchmark for {}: p50 {} ms, p99 {} ms, metrics {}", result.getName(),
+                    result.getLatency().getP50(), result.getLatency().getP99(), result.getMetrics());
+        }
+        return results;
+    }
+
+    /**
+     * Measures the mean time to compute the embedding of a query with the embedding provider, bypassing the cache
+     * of query embeddings.
+     */
+    private double measureInference(List<BenchmarkQuery> queries) throws IOException {
+        long duration = 0;
+        for (BenchmarkQuery query : queries) {
+            long start = System.nanoTime();
+            embeddingProvider.embed(List.of(query.getQuery()));
+            duration += System.nanoTime() - start;
+        }
+        return duration / 1e6 / queries.size();
+    }
+
+    /**
+     * Reads the sparse vectors of the last indexed segments holding one, and averages their number of tokens.
+     */
+    private double getMeanSparseTokens(int sampleSize) throws IOException {
+        String query = """
+                {
+                  "size": %d,
+                  "_source": ["%s"],
+                  "query": { "exists": { "field": "%s" } },
+                  "sort": [ { "dbid": "desc" } ]
+                }""".formatted(sampleSize, Index.SPARSE_FIELD, Index.SPARSE_FIELD);
+        JsonNode hits = objectMapper.readTree(openSearchClient.executeRequest("POST", "/" + indexName + "/_search",
+                query)).path("hits").path("hits");
+        double tokens = 0;
+        for (JsonNode hit : hits) {
+            tokens += hit.path("_source").path(Index.SPARSE_FIELD).size();
+        }
+        return hits.isEmpty() ? 0 : tokens / hits.size();
+    }
+
+    private long count(String query) throws IOException {
+        return objectMapper.readTree(openSearchClient.executeRequest("POST", "/" + indexName + "/_count", query))
+                .path("count").asLong();
+    }
+
+    private static List<String> toIds(List<DocumentBean> documents) {
+        return documents.stream().map(DocumentBean::getUuid).toList();
+    }
+}
@@ -0,0 +1,56 @@
+package org.alfresco.embedding;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Computes the embeddings of texts, for the segments written by the indexer and for the queries of searches.
+ * The implementation is selected by the "embedding.provider" property:
+ * <ul>
+ *   <li>"opensearch" (default): the text embedding model deployed in OpenSearch, through the ML predict API</li>
+ *   <li>"onnx": an ONNX model run in the JVM of this application, so that inference scales with its nodes
+ *   instead of loading the OpenSearch cluster</li>
+ *   <li>"fake": deterministic pseudo-random vectors, to run the application without a model, with the "dev"
+ *   or "test" profile</li>
+ * </ul>
+ * Embeddings computed by a provider are only comparable with the embeddings of the index when they come from
+ * the same model as the ingest pipeline. Providers other than "opensearch" therefore require the "client"
+ * inference mode, so that documents are embedded by the same provider.
+ */
+public interface EmbeddingProvider {
+
+    /**
+     * Gets the ID of the model computing the embeddings, which keys cached embeddings.
+     *
+     * @return the model ID, or null when the model is not available yet
+     */
+    String getId();
+
+    /**
+     * Computes the embeddings of the given texts.
+     *
+     * @param texts the texts to embed
+     * @return one embedding vector per text, in the same order as the texts
+     * @throws IOException if the embeddings cannot be computed
+     */
+    List<float[]> embed(List<String> texts) throws IOException;
+
+    /**
+     * Computes the embeddings of the given texts without blocking the calling thread.
+     * By default, the embeddings are computed on the common pool, which suits CPU-bound inference in the JVM.
+     *
+     * @param texts the texts to embed
+     * @return a future completed with one embedding vector per text, in the same order as the texts
+     */
+    default CompletableFuture<List<float[]>> embedAsync(List<String> texts) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return embed(texts);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package org.alfresco.embedding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Embedding provider computing deterministic pseudo-random unit vectors seeded by the text, so that the indexer
+ * and searches run without a model: the same text always gets the same vector, but vectors carry no meaning.
+ * Only available with the "dev" and "test" profiles, as searches return meaningless results.
+ */
+@Component
+@Profile({"dev", "test"})
+@ConditionalOnProperty(name = "embedding.provider", havingValue = "fake")
+public class FakeEmbeddingProvider implements EmbeddingProvider {
+
+    @Value("${embedding.fake.dimension:768}")
+    private int dimension;
+
+    @Override
+    public String getId() {
+        return "fake-" + dimension;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            embeddings.add(embed(text, dimension));
+        }
+        return embeddings;
+    }
+
+    /**
+     * Computes the vector of a text, from a generator seeded by the hash code of the text, which is the same
+     * on every JVM.
+     *
+     * @param text      the text
+     * @param dimension the dimension of the vector
+     * @return a unit vector
+     */
+    static float[] embed(String text, int dimension) {
+        SplittableRandom random = new SplittableRandom(text.hashCode());
+        float[] embedding = new float[dimension];
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            embedding[i] = (float) (random.nextDouble() * 2 - 1);
+            norm += embedding[i] * embedding[i];
+        }
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < dimension; i++) {
+            embedding[i] /= (float) norm;
+        }
+        return embedding;
+    }
+}
@@ -0,0 +1,198 @@
+package org.alfresco.embedding;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedding provider running a sentence transformer exported to ONNX in the JVM, with ONNX Runtime on CPU.
+ * The model directory holds the model ("model.onnx") and its Hugging Face tokenizer ("tokenizer.json").
+ * Models returning the token embeddings are pooled as configured by "embedding.onnx.pooling": "mean" averages the
+ * embeddings of the tokens, "cls" takes the embedding of the first token. Models returning the sentence embedding
+ * are used as is.
+ */
+@Component
+@ConditionalOnProperty(name = "embedding.provider", havingValue = "onnx")
+public class OnnxEmbeddingProvider implements EmbeddingProvider {
+    private static final Logger LOG = LoggerFactory.getLogger(OnnxEmbeddingProvider.class);
+
+    private static final String INPUT_IDS = "input_ids";
+    private static final String ATTENTION_MASK = "attention_mask";
+    private static final String TOKEN_TYPE_IDS = "token_type_ids";
+
+    @Value("${embedding.onnx.model.path}")
+    private String modelPath;
+
+    @Value("${embedding.onnx.max.length:512}")
+    private int maxLength;
+
+    @Value("${embedding.onnx.pooling:mean}")
+    private String pooling;
+
+    @Value("${embedding.onnx.normalize:false}")
+    private boolean normalize;
+
+    @Value("${embedding.onnx.threads:0}")
+    private int threads;
+
+    private OrtEnvironment environment;
+
+    private OrtSession session;
+
+    private HuggingFaceTokenizer tokenizer;
+
+    /**
+     * Loads the tokenizer and the model, running inference on "embedding.onnx.threads" threads,
+     * or on the number of processors when it is not set.
+     *
+     * @throws Exception if the model or the tokenizer cannot be loaded
+     */
+    @PostConstruct
+    public void init() throws Exception {
+        if (!List.of("mean", "cls").contains(pooling)) {
+            throw new IllegalArgumentException("Unsupported pooling: " + pooling + ", expected mean or cls");
+        }
+        Path directory = Path.of(modelPath);
+        tokenizer = HuggingFaceTokenizer.builder()
+                .optTokenizerPath(directory.resolve("tokenizer.json"))
+                .optMaxLength(maxLength)
+                .optTruncation(true)
+                .optPadding(true)
+                .build();
+        environment = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setIntraOpNumThreads(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+            session = environment.createSession(directory.resolve("model.onnx").toString(), options);
+        }
+        LOG.info("ONNX model {} loaded with inputs {}, {} pooling", getId(), session.getInputNames(), pooling);
+    }
+
+    /**
+     * Releases the model and the tokenizer.
+     *
+     * @throws OrtException if the model cannot be released
+     */
+    @PreDestroy
+    public void close() throws OrtException {
+        if (session != null) {
+            session.close();
+        }
+        if (tokenizer != null) {
+            tokenizer.close();
+        }
+    }
+
+    /**
+     * Gets the ID of the model, as the name of its directory.
+     *
+     * @return the model ID
+     */
+    @Override
+    public String getId() {
+        return "onnx:" + Path.of(modelPath).getFileName();
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) throws IOException {
+        if (texts.isEmpty()) {
+            return List.of();
+        }
+        Encoding[] encodings = tokenizer.batchEncode(texts);
+        long[][] inputIds = new long[encodings.length][];
+        long[][] attentionMask = new long[encodings.length][];
+        long[][] tokenTypeIds = new long[encodings.length][];
+        for (int i = 0; i < encodings.length; i++) {
+            inputIds[i] = encodings[i].getIds();
+            attentionMask[i] = encodings[i].getAttentionMask();
+            tokenTypeIds[i] = encodings[i].getTypeIds();
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put(INPUT_IDS, OnnxTensor.createTensor(environment, inputIds));
+            inputs.put(ATTENTION_MASK, OnnxTensor.createTensor(environment, attentionMask));
+            if (session.getInputNames().contains(TOKEN_TYPE_IDS)) {
+                inputs.put(TOKEN_TYPE_IDS, OnnxTensor.createTensor(environment, tokenTypeIds));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                return toEmbeddings(result.get(0), attentionMask);
+            }
+        } catch (OrtException e) {
+            throw new IOException("ONNX inference failed for " + texts.size() + " texts", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    /**
+     * Reads the embeddings from the first output of the model: sentence embeddings are returned as is,
+     * token embeddings are pooled over the tokens of the attention mask.
+     */
+    private List<float[]> toEmbeddings(OnnxValue output, long[][] attentionMask) throws OrtException {
+        Object value = output.getValue();
+        List<float[]> embeddings = new ArrayList<>(attentionMask.length);
+        if (value instanceof float[][] sentences) {
+            for (float[] sentence : sentences) {
+                embeddings.add(normalize ? normalize(sentence) : sentence);
+            }
+        } else if (value instanceof float[][][] tokens) {
+            for (int i = 0; i < tokens.length; i++) {
+                float[] embedding = "cls".equals(pooling) ? tokens[i][0].clone() : meanPooling(tokens[i], attentionMask[i]);
+                embeddings.add(normalize ? normalize(embedding) : embedding);
+            }
+        } else {
+            throw new IllegalStateException("Unexpected ONNX model output " + output.getInfo());
+        }
+        return embeddings;
+    }
+
+    private static float[] meanPooling(float[][] tokens, long[] attentionMask) {
+        float[] embedding = new float[tokens[0].length];
+        int count = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            if (attentionMask[t] == 0) {
+                continue;
+            }
+            for (int d = 0; d < embedding.length; d++) {
+                embedding[d] += tokens[t][d];
+            }
+            count++;
+        }
+        for (int d = 0; d < embedding.length; d++) {
+            embedding[d] /= Math.max(count, 1);
+        }
+        return embedding;
+    }
+
+    private static float[] normalize(float[] embedding) {
+        double norm = 0;
+        for (float value : embedding) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int d = 0; d < embedding.length; d++) {
+                embedding[d] /= (float) norm;
+            }
+        }
+        return embedding;
+    }
+}
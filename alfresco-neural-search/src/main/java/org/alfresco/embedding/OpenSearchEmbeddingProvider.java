@@ -0,0 +1,60 @@
+package org.alfresco.embedding;
+
+import org.alfresco.opensearch.index.Model;
+import org.alfresco.opensearch.index.OpenSearchConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Embedding provider running the text embedding model deployed in OpenSearch, through the ML predict API.
+ */
+@Component
+@ConditionalOnProperty(name = "embedding.provider", havingValue = "opensearch", matchIfMissing = true)
+public class OpenSearchEmbeddingProvider implements EmbeddingProvider {
+
+    @Autowired
+    private Model model;
+
+    @Autowired
+    private OpenSearchConfiguration openSearchConfiguration;
+
+    /**
+     * Gets the ID of the deployed model.
+     *
+     * @return the model ID, or null until OpenSearch is configured
+     */
+    @Override
+    public String getId() {
+        return openSearchConfiguration.getModelId();
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) throws IOException {
+        String modelId = getId();
+        if (modelId == null) {
+            throw new IOException("No text embedding model is deployed in OpenSearch");
+        }
+        return model.predict(modelId, texts);
+    }
+
+    /**
+     * Computes the embeddings of the given texts with the asynchronous client, without holding a thread
+     * while OpenSearch runs the model.
+     *
+     * @param texts the texts to embed
+     * @return a future completed with one embedding vector per text, on an I/O reactor thread
+     */
+    @Override
+    public CompletableFuture<List<float[]>> embedAsync(List<String> texts) {
+        String modelId = getId();
+        if (modelId == null) {
+            return CompletableFuture.failedFuture(new IOException("No text embedding model is deployed in OpenSearch"));
+        }
+        return model.predictAsync(modelId, texts);
+    }
+}
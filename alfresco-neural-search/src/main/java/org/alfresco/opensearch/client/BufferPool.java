@@ -0,0 +1,64 @@
+package org.alfresco.opensearch.client;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of fixed-size byte buffers holding serialized request bodies, so that a body is written into
+ * recycled chunks instead of a freshly allocated array that grows and is copied as the body gets larger.
+ */
+class BufferPool {
+
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final Deque<byte[]> buffers = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * Creates a buffer pool.
+     *
+     * @param bufferSize the size of every buffer in bytes
+     * @param maxBuffers the maximum number of idle buffers kept, extra buffers are left to the garbage collector
+     */
+    BufferPool(int bufferSize, int maxBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+    }
+
+    /**
+     * Takes a buffer from the pool, allocating a new one when the pool is empty.
+     *
+     * @return a buffer of the configured size, with undefined content
+     */
+    byte[] acquire() {
+        byte[] buffer = buffers.pollFirst();
+        if (buffer == null) {
+            return new byte[bufferSize];
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     *
+     * @param buffer a buffer taken from this pool
+     */
+    void release(byte[] buffer) {
+        if (pooled.incrementAndGet() <= maxBuffers) {
+            buffers.offerFirst(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the size of the buffers of this pool.
+     *
+     * @return the buffer size in bytes
+     */
+    int getBufferSize() {
+        return bufferSize;
+    }
+}
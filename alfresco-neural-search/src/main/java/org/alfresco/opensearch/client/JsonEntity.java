@@ -0,0 +1,174 @@
+package org.alfresco.opensearch.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request entity holding a JSON body written with a Jackson {@link JsonGenerator} straight into pooled buffers.
+ * The body is encoded to UTF-8 once, with Jackson escaping, and sent from the buffers without further copies.
+ * The entity is repeatable, so that the REST client can retry the request on another node,
+ * and it has to be closed once the request is complete to return its buffers to the pool.
+ */
+public class JsonEntity extends AbstractHttpEntity implements Closeable {
+
+    private final BufferPool bufferPool;
+    private final List<byte[]> buffers = new ArrayList<>();
+    private long length;
+
+    private JsonEntity(BufferPool bufferPool, ContentType contentType) {
+        this.bufferPool = bufferPool;
+        setContentType(contentType.toString());
+    }
+
+    /**
+     * Creates an entity from a request body writer.
+     *
+     * @param jsonFactory the factory of the JSON generator
+     * @param bufferPool  the pool of buffers holding the body
+     * @param contentType the content type of the body, JSON or newline-delimited JSON
+     * @param body        the writer of the request body
+     * @return the entity holding the written body
+     * @throws IOException if the body cannot be written
+     */
+    static JsonEntity create(JsonFactory jsonFactory, BufferPool bufferPool, ContentType contentType,
+                             OpenSearchClient.RequestWriter body) throws IOException {
+        JsonEntity entity = new JsonEntity(bufferPool, contentType);
+        try (JsonGenerator generator = jsonFactory.createGenerator(entity.new BufferOutputStream())) {
+            body.write(generator);
+        } catch (IOException | RuntimeException e) {
+            entity.close();
+            throw e;
+        }
+        return entity;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new BufferInputStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        for (int i = 0; i < buffers.size(); i++) {
+            outputStream.write(buffers.get(i), 0, getLength(i));
+        }
+        outputStream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Returns the buffers of this entity to the pool. The entity must not be read afterwards.
+     */
+    @Override
+    public void close() {
+        buffers.forEach(bufferPool::release);
+        buffers.clear();
+        length = 0;
+    }
+
+    private int getLength(int index) {
+        return (int) Math.min(bufferPool.getBufferSize(), length - (long) index * bufferPool.getBufferSize());
+    }
+
+    /**
+     * Appends the generated bytes to the buffers of the entity, taking a new buffer from the pool when full.
+     */
+    private class BufferOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            int offset = getOffset();
+            buffers.get(buffers.size() - 1)[offset] = (byte) b;
+            length++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) {
+            while (count > 0) {
+                int position = getOffset();
+                int chunk = Math.min(count, bufferPool.getBufferSize() - position);
+                System.arraycopy(bytes, offset, buffers.get(buffers.size() - 1), position, chunk);
+                length += chunk;
+                offset += chunk;
+                count -= chunk;
+            }
+        }
+
+        /**
+         * Gets the position of the next byte in the last buffer, adding a buffer when the last one is full.
+         */
+        private int getOffset() {
+            int offset = (int) (length % bufferPool.getBufferSize());
+            if (offset == 0 && length == (long) buffers.size() * bufferPool.getBufferSize()) {
+                buffers.add(bufferPool.acquire());
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * Reads the body from the buffers of the entity.
+     */
+    private class BufferInputStream extends InputStream {
+        private int index;
+        private int position;
+
+        @Override
+        public int read() {
+            if (!hasRemaining()) {
+                return -1;
+            }
+            return buffers.get(index)[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int count) {
+            if (count == 0) {
+                return 0;
+            }
+            if (!hasRemaining()) {
+                return -1;
+            }
+            int chunk = Math.min(count, getLength(index) - position);
+            System.arraycopy(buffers.get(index), position, bytes, offset, chunk);
+            position += chunk;
+            return chunk;
+        }
+
+        @Override
+        public int available() {
+            return hasRemaining() ? getLength(index) - position : 0;
+        }
+
+        private boolean hasRemaining() {
+            if (index < buffers.size() && position == getLength(index)) {
+                index++;
+                position = 0;
+            }
+            return index < buffers.size() && position < getLength(index);
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package org.alfresco.opensearch.client;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.apache.http.HttpEntity;
+import org.opensearch.client.Cancellable;
 import org.opensearch.client.Request;
 import org.opensearch.client.Response;
+import org.opensearch.client.ResponseListener;
 import org.opensearch.client.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 
@@ -21,9 +32,38 @@ import org.apache.http.entity.StringEntity;
 public class OpenSearchClient {
     private static final Logger LOG = LoggerFactory.getLogger(OpenSearchClient.class);
 
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson", StandardCharsets.UTF_8);
+
+    @Value("${opensearch.client.buffer.size:16384}")
+    private int bufferSize;
+
+    @Value("${opensearch.client.buffer.pool.size:256}")
+    private int bufferPoolSize;
+
     @Autowired
     private OpenSearchClientFactory openSearchClientFactory;
 
+    // The generators of an ObjectMapper factory can also write POJOs and trees
+    private final JsonFactory jsonFactory = new ObjectMapper().getFactory();
+
+    private BufferPool bufferPool;
+
+    /**
+     * Writer of a JSON request body.
+     */
+    @FunctionalInterface
+    public interface RequestWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Creates the pool of buffers holding request bodies written with a {@link RequestWriter}.
+     */
+    @PostConstruct
+    public void init() {
+        bufferPool = new BufferPool(bufferSize, bufferPoolSize);
+    }
+
     /**
      * Executes a request against the OpenSearch API.
      *
@@ -34,17 +74,167 @@ public class OpenSearchClient {
      * @throws IOException if an I/O error occurs
      */
     public String executeRequest(String method, String endpoint, String body) throws IOException {
-        RestClient client = openSearchClientFactory.getRestClient();
-        Request request = new Request(method, endpoint);
+        return executeRequest(method, endpoint, toEntity(body), OpenSearchClient::readString);
+    }
 
-        if (body != null && !body.isEmpty()) {
-            request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+    /**
+     * Executes a request against the OpenSearch API, writing the request body with a JSON generator
+     * into pooled buffers instead of building it as a string.
+     *
+     * @param method the HTTP method
+     * @param endpoint the API endpoint
+     * @param body the writer of the request body
+     * @return the response as a string
+     * @throws IOException if an I/O error occurs
+     */
+    public String executeJsonRequest(String method, String endpoint, RequestWriter body) throws IOException {
+        try (JsonEntity entity = JsonEntity.create(jsonFactory, bufferPool, ContentType.APPLICATION_JSON, body)) {
+            return executeRequest(method, endpoint, entity, OpenSearchClient::readString);
+        }
+    }
+
+    /**
+     * Executes a request with a newline-delimited JSON body, as expected by the "_msearch" and "_bulk" APIs.
+     * Root values written by the body writer are not separated: the writer ends every line with
+     * {@code generator.writeRaw('\n')}.
+     *
+     * @param method the HTTP method
+     * @param endpoint the API endpoint
+     * @param body the writer of the request body
+     * @return the response as a string
+     * @throws IOException if an I/O error occurs
+     */
+    public String executeNdjsonRequest(String method, String endpoint, RequestWriter body) throws IOException {
+        RequestWriter lines = generator -> {
+            generator.setRootValueSeparator(null);
+            body.write(generator);
+        };
+        try (JsonEntity entity = JsonEntity.create(jsonFactory, bufferPool, NDJSON, lines)) {
+            return executeRequest(method, endpoint, entity, OpenSearchClient::readString);
         }
+    }
+
+    /**
+     * Reader of a response body stream.
+     *
+     * @param <T> the type of the value read from the response
+     */
+    @FunctionalInterface
+    public interface ResponseReader<T> {
+        T read(InputStream response) throws IOException;
+    }
+
+    /**
+     * Executes a request against the OpenSearch API, handing the response body over as a stream
+     * so that it can be parsed incrementally.
+     *
+     * @param method the HTTP method
+     * @param endpoint the API endpoint
+     * @param body the request body
+     * @param reader the reader of the response body, which is closed once read
+     * @param <T> the type of the value read from the response
+     * @return the value read from the response
+     * @throws IOException if an I/O error occurs
+     */
+    public <T> T executeRequest(String method, String endpoint, String body, ResponseReader<T> reader) throws IOException {
+        return executeRequest(method, endpoint, toEntity(body), reader);
+    }
+
+    private <T> T executeRequest(String method, String endpoint, HttpEntity entity, ResponseReader<T> reader)
+            throws IOException {
+        RestClient client = openSearchClientFactory.getRestClient();
+        Request request = new Request(method, endpoint);
+        request.setEntity(entity);
 
         Response response = client.performRequest(request);
 
         try (InputStream is = response.getEntity().getContent()) {
-            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            return reader.read(is);
         }
     }
-}
\ No newline at end of file
+
+    private static HttpEntity toEntity(String body) {
+        return body != null && !body.isEmpty() ? new StringEntity(body, ContentType.APPLICATION_JSON) : null;
+    }
+
+    private static String readString(InputStream response) throws IOException {
+        return new String(response.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Executes a request against the OpenSearch API without blocking the calling thread.
+     * Cancelling the returned future, or completing it exceptionally with a timeout, aborts the HTTP request,
+     * which makes OpenSearch cancel the search task.
+     *
+     * @param method the HTTP method
+     * @param endpoint the API endpoint
+     * @param body the request body
+     * @return a future completed with the response as a string, on an I/O reactor thread
+     */
+    public CompletableFuture<String> executeRequestAsync(String method, String endpoint, String body) {
+        return executeRequestAsync(method, endpoint, toEntity(body), () -> { });
+    }
+
+    /**
+     * Executes a request against the OpenSearch API without blocking the calling thread, writing the request body
+     * with a JSON generator into pooled buffers, which are released once the request is complete.
+     *
+     * @param method the HTTP method
+     * @param endpoint the API endpoint
+     * @param body the writer of the request body
+     * @return a future completed with the response as a string, on an I/O reactor thread,
+     *         or completed exceptionally when the body cannot be written
+     */
+    public CompletableFuture<String> executeJsonRequestAsync(String method, String endpoint, RequestWriter body) {
+        JsonEntity entity;
+        try {
+            entity = JsonEntity.create(jsonFactory, bufferPool, ContentType.APPLICATION_JSON, body);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        return executeRequestAsync(method, endpoint, entity, entity::close);
+    }
+
+    /**
+     * Executes a request asynchronously.
+     *
+     * @param method the HTTP method
+     * @param endpoint the API endpoint
+     * @param entity the request entity, may be null
+     * @param onRequestComplete called once the client is done with the request entity, after a response,
+     *                          a failure or a cancellation, and before the returned future is completed
+     * @return a future completed with the response as a string
+     */
+    private CompletableFuture<String> executeRequestAsync(String method, String endpoint, HttpEntity entity,
+                                                          Runnable onRequestComplete) {
+        RestClient client = openSearchClientFactory.getRestClient();
+        Request request = new Request(method, endpoint);
+        request.setEntity(entity);
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Cancellable cancellable = client.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                onRequestComplete.run();
+                try (InputStream is = response.getEntity().getContent()) {
+                    future.complete(readString(is));
+                } catch (IOException e) {
+                    future.completeExceptionally(new UncheckedIOException(e));
+                }
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                onRequestComplete.run();
+                future.completeExceptionally(exception);
+            }
+        });
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled() || error instanceof TimeoutException) {
+                LOG.debug("Aborting {} {}: {}", method, endpoint, error.toString());
+                cancellable.cancel();
+            }
+        });
+        return future;
+    }
+}
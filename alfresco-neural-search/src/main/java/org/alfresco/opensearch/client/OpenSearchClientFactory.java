@@ -17,6 +17,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.net.ssl.SSLContext;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Factory class for creating and managing OpenSearch clients.
@@ -42,17 +43,37 @@ public class OpenSearchClientFactory {
     @Value("${opensearch.verify.hostname}")
     private Boolean verifyHostname;
 
-    private OpenSearchClient openSearchClient;
-    private RestClient restClient;
+    @Value("${opensearch.client.connections.max:30}")
+    private int maxConnections;
+
+    @Value("${opensearch.client.connections.route.max:10}")
+    private int maxConnectionsPerRoute;
+
+    // A lock rather than "synchronized", which pins virtual threads to their carrier while the client is created
+    private final ReentrantLock initLock = new ReentrantLock();
+
+    private volatile OpenSearchClient openSearchClient;
+    private volatile RestClient restClient;
 
     /**
      * Initializes the OpenSearch client and REST client.
      */
-    private synchronized void init() {
-        if (openSearchClient != null && restClient != null) {
-            return;
+    private void init() {
+        initLock.lock();
+        try {
+            if (openSearchClient == null || restClient == null) {
+                createClients();
+            }
+        } finally {
+            initLock.unlock();
         }
+    }
 
+    /**
+     * Creates the OpenSearch client and REST client. The connection pool is sized by configuration, as the
+     * default of 10 connections per node caps the number of concurrent searches whatever the number of threads.
+     */
+    private void createClients() {
         BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
         credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(opensearchUser, opensearchPassword));
 
@@ -68,6 +89,8 @@ public class OpenSearchClientFactory {
         builder.setHttpClientConfigCallback(httpClientBuilder -> {
             httpClientBuilder.setSSLContext(sslContext);
             httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+            httpClientBuilder.setMaxConnTotal(maxConnections);
+            httpClientBuilder.setMaxConnPerRoute(maxConnectionsPerRoute);
             if (!verifyHostname) {
                 httpClientBuilder.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
             }
@@ -7,6 +7,7 @@ import org.opensearch.client.opensearch.cluster.PutClusterSettingsRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -21,6 +22,18 @@ public class ClusterSettings {
 
     static final Logger LOG = LoggerFactory.getLogger(ClusterSettings.class);
 
+    @Value("${opensearch.ml.native.memory.threshold:99}")
+    private int nativeMemoryThreshold;
+
+    @Value("${opensearch.ml.only.run.on.ml.node:false}")
+    private boolean onlyRunOnMlNode;
+
+    @Value("${opensearch.ml.max.model.per.node:#{null}}")
+    private Integer maxModelPerNode;
+
+    @Value("${opensearch.ml.max.task.per.node:#{null}}")
+    private Integer maxTaskPerNode;
+
     @Autowired
     private OpenSearchClientFactory openSearchClientFactory;
 
@@ -53,15 +66,22 @@ public class ClusterSettings {
     }
 
     /**
-     * Creates the ML Commons settings map.
+     * Creates the ML Commons settings map. The limits of models and tasks per node are only set when configured,
+     * keeping the ML Commons defaults otherwise.
      *
      * @return a map containing ML Commons settings
      */
     private Map<String, Object> createMlCommonsSettings() {
         Map<String, Object> mlCommonsSettings = new HashMap<>();
-        mlCommonsSettings.put("only_run_on_ml_node", "false");
+        mlCommonsSettings.put("only_run_on_ml_node", String.valueOf(onlyRunOnMlNode));
         mlCommonsSettings.put("model_access_control_enabled", "true");
-        mlCommonsSettings.put("native_memory_threshold", "99");
+        mlCommonsSettings.put("native_memory_threshold", String.valueOf(nativeMemoryThreshold));
+        if (maxModelPerNode != null) {
+            mlCommonsSettings.put("max_model_on_node", String.valueOf(maxModelPerNode));
+        }
+        if (maxTaskPerNode != null) {
+            mlCommonsSettings.put("max_ml_task_per_node", String.valueOf(maxTaskPerNode));
+        }
         return mlCommonsSettings;
     }
 
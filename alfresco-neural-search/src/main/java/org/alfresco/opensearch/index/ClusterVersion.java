@@ -0,0 +1,71 @@
+package org.alfresco.opensearch.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.alfresco.opensearch.client.OpenSearchClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Version of the OpenSearch cluster, read once from the root endpoint. Features added by recent OpenSearch releases,
+ * such as some vector quantizations and kNN query parameters, are checked against it, so that settings the cluster
+ * does not support are rejected with a clear message instead of failing every index creation or search.
+ */
+@Component
+public class ClusterVersion {
+
+    @Autowired
+    private OpenSearchClient openSearchClient;
+
+    private volatile String number;
+
+    /**
+     * Gets the version number of the cluster, such as "2.14.0".
+     *
+     * @return the version number
+     * @throws UncheckedIOException if the version cannot be read from the cluster
+     */
+    public String getNumber() {
+        if (number == null) {
+            try {
+                JsonNode info = new ObjectMapper().readTree(openSearchClient.executeRequest("GET", "/", null));
+                number = info.path("version").path("number").asText();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Checks whether the cluster runs at least the given version.
+     *
+     * @param major the major version
+     * @param minor the minor version
+     * @return true if the cluster version is the given version or a later one
+     */
+    public boolean isAtLeast(int major, int minor) {
+        String[] parts = getNumber().split("[.-]");
+        int clusterMajor = Integer.parseInt(parts[0]);
+        int clusterMinor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+        return clusterMajor > major || (clusterMajor == major && clusterMinor >= minor);
+    }
+
+    /**
+     * Checks that the cluster supports a feature.
+     *
+     * @param major   the major version introducing the feature
+     * @param minor   the minor version introducing the feature
+     * @param feature the feature, starting the error message
+     * @throws IllegalArgumentException if the cluster runs an earlier version
+     */
+    public void require(int major, int minor, String feature) {
+        if (!isAtLeast(major, minor)) {
+            throw new IllegalArgumentException("%s requires OpenSearch %d.%d or later, the cluster runs %s"
+                    .formatted(feature, major, minor, getNumber()));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.alfresco.opensearch.index;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.alfresco.opensearch.client.OpenSearchClientFactory;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
@@ -15,9 +16,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Component for managing OpenSearch indices.
@@ -27,15 +31,105 @@ public class Index {
 
     static final Logger LOG = LoggerFactory.getLogger(Index.class);
 
+    /**
+     * Name of the field holding the passage embedding vector.
+     */
+    public static final String EMBEDDING_FIELD = "passage_embedding";
+
+    /**
+     * Name of the field holding the sparse vector of the passage, when neural sparse retrieval is enabled.
+     */
+    public static final String SPARSE_FIELD = "passage_sparse";
+
+    /**
+     * Name of the keyword field holding the id of the document a segment belongs to.
+     */
+    public static final String PARENT_FIELD = "parentId";
+
+    /**
+     * Name of the keyword field holding the authorities allowed to read a document.
+     */
+    public static final String READERS_FIELD = "readers";
+
+    /**
+     * Name of the keyword field holding the ids of the ancestor nodes of a document, to scope searches to a folder tree.
+     */
+    public static final String ANCESTORS_FIELD = "ancestors";
+
+    /**
+     * Name of the keyword field holding the short name of the site a document belongs to.
+     */
+    public static final String SITE_FIELD = "site";
+
+    /**
+     * Name of the internal index holding the indexing checkpoint and the resolved model IDs.
+     */
+    public static final String CONTROL_INDEX = "alfresco-control";
+
+    // ID of the document of the control index holding the IDs of the model and of its group
+    private static final String MODEL_DOCUMENT = "model";
+
+    // Lucene files holding the vectors, the HNSW graphs, their metadata and the quantized vectors
+    private static final String LUCENE_VECTOR_FILES = "[\"vec\", \"vex\", \"vem\", \"veq\", \"vemq\"]";
+
+    // Mapping of the location fields, which are filled when paths are indexed
+    private static final List<String> LOCATION_MAPPINGS = List.of(
+            "\"ancestors\": { \"type\": \"keyword\" }",
+            "\"site\": { \"type\": \"keyword\" }");
+
     @Value("${opensearch.index.name}")
     private String indexName;
 
+    @Value("${opensearch.index.source.excludes.vector:false}")
+    private boolean excludeVectorFromSource;
+
     @Value("${opensearch.ingest.pipeline.name}")
     private String ingestPipelineName;
 
+    @Value("${opensearch.index.knn.engine:lucene}")
+    private String knnEngine;
+
+    @Value("${opensearch.index.knn.space.type:l2}")
+    private String knnSpaceType;
+
+    @Value("${opensearch.index.knn.m:#{null}}")
+    private Integer knnM;
+
+    @Value("${opensearch.index.knn.ef.construction:#{null}}")
+    private Integer knnEfConstruction;
+
+    @Value("${opensearch.index.knn.ef.search:#{null}}")
+    private Integer knnEfSearch;
+
+    @Value("${opensearch.index.shards:#{null}}")
+    private Integer shards;
+
+    @Value("${opensearch.index.knn.quantization:none}")
+    private String quantization;
+
+    @Value("${opensearch.search.knn.oversample:#{null}}")
+    private Float oversample;
+
+    @Value("${opensearch.index.knn.preload:true}")
+    private boolean preloadVectors;
+
+    private KnnIndexProfile knnProfile;
+
     @Autowired
     private OpenSearchClientFactory openSearchClientFactory;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MetadataMapping metadataMapping;
+
+    @Autowired
+    private SparseEncoding sparseEncoding;
+
+    @Autowired
+    private ClusterVersion clusterVersion;
+
     /**
      * Retrieves an instance of RestClient from the factory.
      *
@@ -55,32 +149,80 @@ public class Index {
     }
 
     /**
-     * Applies the index settings and mappings to the OpenSearch cluster.
+     * Gets the vector settings of the content index, as configured.
+     *
+     * @return the kNN index profile of the content index
+     */
+    public KnnIndexProfile getKnnProfile() {
+        if (knnProfile == null) {
+            KnnIndexProfile profile = new KnnIndexProfile(indexName, knnEngine, knnSpaceType, knnM, knnEfConstruction,
+                    knnEfSearch, shards);
+            profile.setQuantization(quantization);
+            profile.setOversample(oversample);
+            profile.validate(clusterVersion);
+            knnProfile = profile;
+        }
+        return knnProfile;
+    }
+
+    /**
+     * Applies the index settings and mappings to the OpenSearch cluster, with the configured kNN index profile.
+     * The profile and the dimension only apply when the index is created: changing them requires to reindex.
      *
+     * @param dimension the dimension of the embeddings of the deployed model
      * @throws Exception if an error occurs while applying the settings
      */
-    public void createKnnIndex() throws Exception {
-        Request request = new Request("PUT", "/" + indexName);
+    public void createKnnIndex(int dimension) throws Exception {
+        KnnIndexProfile profile = getKnnProfile();
+        createKnnIndex(indexName, profile, dimension, ingestPipelineName);
+        LOG.info("Index {} associated to pipeline {} has been created with Knn configuration {} and dimension {}",
+                indexName, ingestPipelineName, profile, dimension);
+    }
+
+    /**
+     * Creates an index with the mappings of the content index and the given kNN index profile.
+     * When enabled, the embedding vector is kept out of the stored "_source": it is still indexed for kNN search,
+     * but it is not written to disk a second time. Reindexing and updating segments then compute their vector again
+     * with the ingest pipeline.
+     * The metadata fields defined in {@link MetadataMapping} are added to the mapping, so that they can be filtered on.
+     * When neural sparse retrieval is enabled, the sparse vector of every segment is mapped as "rank_features".
+     * Term offsets are stored in the postings of the text, so that snippets are highlighted without analyzing it again.
+     * With the lucene engine, the vector and graph files are preloaded into the file system cache when the shards
+     * are opened, when enabled, so that the first searches do not read them from disk.
+     *
+     * @param name      the name of the index
+     * @param profile   the kNN index profile
+     * @param dimension the dimension of the embedding vectors
+     * @param pipeline  the default ingest pipeline computing embeddings, or null for an index fed with vectors
+     * @throws Exception if an error occurs while applying the settings
+     */
+    public void createKnnIndex(String name, KnnIndexProfile profile, int dimension, String pipeline) throws Exception {
+        Request request = new Request("PUT", "/" + name);
+        String sourceMapping = excludeVectorFromSource
+                ? "\"_source\": { \"excludes\": [\"" + EMBEDDING_FIELD + "\"] },"
+                : "";
+        String pipelineSetting = pipeline != null ? ",\n\"default_pipeline\": \"" + pipeline + "\"" : "";
+        String preloadSetting = preloadVectors && !profile.isNative()
+                ? ",\n\"index.store.preload\": " + LUCENE_VECTOR_FILES
+                : "";
         String jsonString = String.format("""
                 {
                   "settings": {
-                    "index.knn": true,
-                    "default_pipeline": "%s"
+                    "index.knn": true%s%s%s
                   },
                   "mappings": {
+                    %s
                     "properties": {
                       "id": {
                         "type": "text"
                       },
+                      "parentId": {
+                        "type": "keyword"
+                      },
                       "passage_embedding": {
                         "type": "knn_vector",
-                        "dimension": 768,
-                        "method": {
-                          "engine": "lucene",
-                          "space_type": "l2",
-                          "name": "hnsw",
-                          "parameters": {}
-                        }
+                        "dimension": %d,
+                        %s
                       },
                       "dbid": {
                           "type": "long"
@@ -92,7 +234,8 @@ public class Index {
                         "type": "text"
                       },
                       "text": {
-                        "type": "text"
+                        "type": "text",
+                        "index_options": "offsets"
                       },
                       "acl": {
                         "type": "nested",
@@ -101,24 +244,106 @@ public class Index {
                           "permission": { "type": "keyword" }
                         }
                       },
+                      %s,
                       "readers": { "type": "keyword" },
                       "nodeRef": { "type": "keyword" }
                     }
                   }
                 }
-                """, ingestPipelineName);
+                """, pipelineSetting, preloadSetting, profile.buildSettings(), sourceMapping, dimension, profile.buildVectorMapping(),
+                String.join(",\n", buildAddedMappings()));
+
+        request.setEntity(new StringEntity(jsonString, ContentType.APPLICATION_JSON));
+        restClient().performRequest(request);
+    }
+
+    /**
+     * Gets the dimension of the embedding vectors of the content index, as mapped when it was created.
+     *
+     * @return the dimension of the vector field, or 0 when the field is not mapped
+     * @throws IOException if an I/O error occurs
+     */
+    public int getEmbeddingDimension() throws IOException {
+        Response response = restClient().performRequest(
+                new Request("GET", "/" + indexName + "/_mapping/field/" + EMBEDDING_FIELD));
+        JsonNode mapping = new ObjectMapper().readTree(response.getEntity().getContent());
+        return mapping.path(indexName).path("mappings").path(EMBEDDING_FIELD).path("mapping").path(EMBEDDING_FIELD)
+                .path("dimension").asInt(0);
+    }
+
+    /**
+     * Loads the native HNSW graphs of the content index into the memory of the data nodes with the kNN warmup API,
+     * so that the first searches do not load them from disk. The graphs of the lucene engine are held by Lucene
+     * files instead, which are primed by searches.
+     *
+     * @return the number of shards whose graphs are loaded, or -1 when the engine is not native
+     * @throws IOException if an I/O error occurs
+     */
+    public int warmUpKnnGraphs() throws IOException {
+        if (!getKnnProfile().isNative()) {
+            return -1;
+        }
+        Response response = restClient().performRequest(new Request("GET", "/_plugins/_knn/warmup/" + indexName));
+        JsonNode shards = new ObjectMapper().readTree(response.getEntity().getContent()).path("_shards");
+        if (shards.path("failed").asInt(0) > 0) {
+            LOG.warn("kNN graphs of {} shards of index {} could not be loaded", shards.path("failed").asInt(), indexName);
+        }
+        return shards.path("successful").asInt(0);
+    }
 
+    /**
+     * Deletes an index.
+     *
+     * @param name the name of the index
+     * @throws IOException if an I/O error occurs
+     */
+    public void deleteIndex(String name) throws IOException {
+        restClient().performRequest(new Request("DELETE", "/" + name));
+    }
+
+    /**
+     * Adds the location fields, the metadata fields defined in {@link MetadataMapping} and the sparse vector field
+     * when enabled to the mapping of an existing index. New fields are accepted by OpenSearch, while changing the type
+     * of an existing field fails: such a change requires to reindex. Documents indexed before a field was added are
+     * not matched by filters or sparse searches on that field.
+     *
+     * @throws Exception if an error occurs while updating the mapping
+     */
+    public void updateMappings() throws Exception {
+        Request request = new Request("PUT", "/" + indexName + "/_mapping");
+        String jsonString = """
+                {
+                  "properties": {
+                    %s
+                  }
+                }
+                """.formatted(String.join(",\n", buildAddedMappings()));
         request.setEntity(new StringEntity(jsonString, ContentType.APPLICATION_JSON));
         restClient().performRequest(request);
 
-        LOG.info("Index {} associated to pipeline {} has been created with Knn configuration", indexName, ingestPipelineName);
+        LOG.info("Location and metadata fields {} mapped in index {}", metadataMapping.getFieldNames(), indexName);
+    }
+
+    /**
+     * Builds the mappings of the fields added to the base mapping of the content index: the location fields,
+     * the metadata fields and the sparse vector field when enabled.
+     *
+     * @return the JSON member of every added field mapping
+     */
+    private List<String> buildAddedMappings() {
+        List<String> mappings = new ArrayList<>(LOCATION_MAPPINGS);
+        mappings.addAll(metadataMapping.buildMappings());
+        if (sparseEncoding.isEnabled()) {
+            mappings.add(sparseEncoding.buildMapping());
+        }
+        return mappings;
     }
 
     /**
      * Create index to control alfresco indexing information
      */
     public void createAlfrescoIndex() throws Exception {
-        Request request = new Request("PUT", "/alfresco-control");
+        Request request = new Request("PUT", "/" + CONTROL_INDEX);
         String jsonString = """
                 {
                   "mappings": {
@@ -139,15 +364,57 @@ public class Index {
 
     /**
      * Updates the last synchronization time in the Alfresco index.
+     * The content index is refreshed first, so that listeners of the published {@link IndexCheckpointEvent}
+     * see every change up to this transaction in search results.
      *
      * @param lastTransactionId The last transactionId to be updated in the Alfresco index.
      * @throws Exception If an error occurs during the update process.
      */
     public void updateAlfrescoIndex(Long lastTransactionId) throws Exception {
-        Request request = new Request("PUT", "/alfresco-control/_doc/1");
+        restClient().performRequest(new Request("POST", "/" + indexName + "/_refresh"));
+
+        Request request = new Request("PUT", "/" + CONTROL_INDEX + "/_doc/1");
         String jsonString = "{ \"lastTransactionId\": %d }".formatted(lastTransactionId);
         request.setEntity(new StringEntity(jsonString, ContentType.APPLICATION_JSON));
         restClient().performRequest(request);
+
+        eventPublisher.publishEvent(new IndexCheckpointEvent(lastTransactionId));
+    }
+
+    /**
+     * Gets the IDs of the model and of the model group resolved by a previous start.
+     *
+     * @return the document holding "modelId" and "modelGroupId", or null if they have not been stored
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonNode getAlfrescoModel() throws IOException {
+        try {
+            Response response = restClient().performRequest(
+                    new Request("GET", "/" + CONTROL_INDEX + "/_doc/" + MODEL_DOCUMENT));
+            JsonNode source = new ObjectMapper().readTree(response.getEntity().getContent()).path("_source");
+            return source.isObject() ? source : null;
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stores the IDs of the model and of the model group, so that the next start reuses them without searching.
+     *
+     * @param modelGroupId the ID of the model group
+     * @param modelId      the ID of the model
+     * @throws IOException if an I/O error occurs
+     */
+    public void updateAlfrescoModel(String modelGroupId, String modelId) throws IOException {
+        ObjectNode document = new ObjectMapper().createObjectNode();
+        document.put("modelGroupId", modelGroupId);
+        document.put("modelId", modelId);
+        Request request = new Request("PUT", "/" + CONTROL_INDEX + "/_doc/" + MODEL_DOCUMENT);
+        request.setEntity(new StringEntity(document.toString(), ContentType.APPLICATION_JSON));
+        restClient().performRequest(request);
     }
 
     /**
@@ -157,7 +424,7 @@ public class Index {
      * @throws Exception If an error occurs during the retrieval process.
      */
     public Long getAlfrescoIndexField() throws Exception {
-        Request request = new Request("GET", "/alfresco-control/_doc/1");
+        Request request = new Request("GET", "/" + CONTROL_INDEX + "/_doc/1");
         try {
             Response response = restClient().performRequest(request);
             ObjectMapper objectMapper = new ObjectMapper();
@@ -179,6 +446,17 @@ public class Index {
      * @throws IOException if an I/O error occurs
      */
     public boolean existIndex() throws IOException {
-        return openSearchClient().indices().exists(new ExistsRequest.Builder().index(indexName).build()).value();
+        return existIndex(indexName);
+    }
+
+    /**
+     * Checks if an index exists in the OpenSearch cluster.
+     *
+     * @param name the name of the index
+     * @return true if the index exists, false otherwise
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean existIndex(String name) throws IOException {
+        return openSearchClient().indices().exists(new ExistsRequest.Builder().index(name).build()).value();
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package org.alfresco.opensearch.index;
+
+/**
+ * Event published when the indexer advances the checkpoint stored in the "alfresco-control" index,
+ * meaning that content, metadata and permissions of the transactions up to this checkpoint are searchable.
+ */
+public class IndexCheckpointEvent {
+
+    private final long lastTransactionId;
+
+    public IndexCheckpointEvent(long lastTransactionId) {
+        this.lastTransactionId = lastTransactionId;
+    }
+
+    /**
+     * Gets the last transaction Id synchronized.
+     *
+     * @return the last transaction Id
+     */
+    public long getLastTransactionId() {
+        return lastTransactionId;
+    }
+}
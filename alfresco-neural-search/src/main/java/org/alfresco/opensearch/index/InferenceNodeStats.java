@@ -0,0 +1,94 @@
+package org.alfresco.opensearch.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Statistics of the ML Commons predict thread pool of a node, read from the nodes stats API.
+ * The queue holds the inference requests waiting for a thread: a queue growing on every worker node means
+ * that inference needs more ML nodes or more predict threads.
+ */
+public class InferenceNodeStats {
+    private final String nodeId;
+    private final String name;
+    private final boolean worker;
+    private final int threads;
+    private final int active;
+    private final int queue;
+    private final long rejected;
+    private final long completed;
+
+    public InferenceNodeStats(String nodeId, String name, boolean worker, int threads, int active, int queue,
+                              long rejected, long completed) {
+        this.nodeId = nodeId;
+        this.name = name;
+        this.worker = worker;
+        this.threads = threads;
+        this.active = active;
+        this.queue = queue;
+        this.rejected = rejected;
+        this.completed = completed;
+    }
+
+    /**
+     * Reads the statistics of a node from the response of the "GET _nodes/stats/thread_pool" API.
+     *
+     * @param nodeId the ID of the node
+     * @param node   the statistics of the node
+     * @param worker whether the model is deployed on the node
+     * @return the inference statistics of the node
+     */
+    static InferenceNodeStats of(String nodeId, JsonNode node, boolean worker) {
+        JsonNode pool = node.path("thread_pool").path(ModelDeployment.PREDICT_THREAD_POOL);
+        return new InferenceNodeStats(nodeId, node.path("name").asText(null), worker, pool.path("threads").asInt(),
+                pool.path("active").asInt(), pool.path("queue").asInt(), pool.path("rejected").asLong(),
+                pool.path("completed").asLong());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Checks whether the model is deployed on the node.
+     *
+     * @return true if the node runs inference with the model
+     */
+    public boolean isWorker() {
+        return worker;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Gets the number of inference requests waiting for a predict thread.
+     *
+     * @return the queue depth
+     */
+    public int getQueue() {
+        return queue;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return (name != null ? name : nodeId) + (worker ? " (worker)" : "") + ": threads=" + threads
+                + ", active=" + active + ", queue=" + queue + ", rejected=" + rejected + ", completed=" + completed;
+    }
+}
@@ -0,0 +1,346 @@
+package org.alfresco.opensearch.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vector settings of a kNN index: engine, space type, HNSW graph parameters, vector quantization and shard count.
+ * The profile of the content index is configured with the "opensearch.index.knn.*" properties,
+ * other profiles are compared against it with the kNN benchmark.
+ * <p>
+ * Quantized vectors shrink the HNSW graphs held in memory, while full-precision vectors are still stored on disk:
+ * searches on a quantized index are run in two phases, an oversampled approximate search on quantized vectors,
+ * then an exact rescoring of the candidates with full-precision vectors.
+ */
+public class KnnIndexProfile {
+
+    /**
+     * Default ratio of candidates searched on quantized vectors to rescored results.
+     */
+    public static final float DEFAULT_OVERSAMPLE = 3;
+
+    /**
+     * Supported kNN engines.
+     */
+    public static final List<String> ENGINES = List.of("lucene", "faiss", "nmslib");
+
+    /**
+     * Supported space types, "innerproduct" matching models trained with dot product similarity.
+     */
+    public static final List<String> SPACE_TYPES = List.of("l2", "innerproduct", "cosinesimil");
+
+    /**
+     * Supported vector quantizations: none, 16-bit floats (faiss), 8-bit integers (lucene) or 1 bit per dimension
+     * (faiss). The quantization ranges of int8 and the thresholds of binary are computed by the engine from
+     * the indexed embeddings, so that they are calibrated for the model that produced them.
+     */
+    public static final List<String> QUANTIZATIONS = List.of("none", "fp16", "int8", "binary");
+
+    private String name;
+    private String engine = "lucene";
+    private String spaceType = "l2";
+    private Integer m;
+    private Integer efConstruction;
+    private Integer efSearch;
+    private Integer shards;
+    private String quantization = "none";
+    private Float oversample;
+
+    public KnnIndexProfile() {
+    }
+
+    public KnnIndexProfile(String name, String engine, String spaceType, Integer m, Integer efConstruction,
+                           Integer efSearch, Integer shards) {
+        this.name = name;
+        this.engine = engine;
+        this.spaceType = spaceType;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.shards = shards;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    public String getSpaceType() {
+        return spaceType;
+    }
+
+    public void setSpaceType(String spaceType) {
+        this.spaceType = spaceType;
+    }
+
+    /**
+     * Gets the number of neighbours of every node of the HNSW graph.
+     *
+     * @return the value of "m", or null for the engine default
+     */
+    public Integer getM() {
+        return m;
+    }
+
+    public void setM(Integer m) {
+        this.m = m;
+    }
+
+    /**
+     * Gets the size of the candidate queue when building the HNSW graph.
+     *
+     * @return the value of "ef_construction", or null for the engine default
+     */
+    public Integer getEfConstruction() {
+        return efConstruction;
+    }
+
+    public void setEfConstruction(Integer efConstruction) {
+        this.efConstruction = efConstruction;
+    }
+
+    /**
+     * Gets the size of the candidate queue when searching the HNSW graph. It is an index setting of the faiss
+     * and nmslib engines, and the default query parameter of the lucene engine.
+     *
+     * @return the value of "ef_search", or null for the engine default
+     */
+    public Integer getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(Integer efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * Gets the number of primary shards of the index.
+     *
+     * @return the number of shards, or null for the cluster default
+     */
+    public Integer getShards() {
+        return shards;
+    }
+
+    public void setShards(Integer shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Gets the vector quantization of the index.
+     *
+     * @return one of {@link #QUANTIZATIONS}
+     */
+    public String getQuantization() {
+        return quantization;
+    }
+
+    public void setQuantization(String quantization) {
+        this.quantization = quantization;
+    }
+
+    /**
+     * Gets the ratio of candidates searched on quantized vectors to results rescored with full-precision vectors.
+     *
+     * @return the oversampling factor, or null for the default one
+     */
+    public Float getOversample() {
+        return oversample;
+    }
+
+    public void setOversample(Float oversample) {
+        this.oversample = oversample;
+    }
+
+    /**
+     * Checks whether vectors are quantized, in which case searches are rescored with full-precision vectors.
+     *
+     * @return true unless the quantization is "none"
+     */
+    public boolean isQuantized() {
+        return !"none".equals(quantization);
+    }
+
+    /**
+     * Gets the ratio of the memory of full-precision vectors to the memory of the indexed vectors.
+     *
+     * @return the compression factor of the quantization
+     */
+    public int getCompression() {
+        return switch (quantization) {
+            case "fp16" -> 2;
+            case "int8" -> 4;
+            case "binary" -> 32;
+            default -> 1;
+        };
+    }
+
+    /**
+     * Gets the number of candidates searched on quantized vectors for a two-phase search returning k neighbours.
+     *
+     * @param k the number of neighbours
+     * @return the number of candidates, k itself when vectors are not quantized
+     */
+    public int getCandidates(int k) {
+        if (!isQuantized()) {
+            return k;
+        }
+        return (int) Math.ceil(k * (oversample != null ? oversample : DEFAULT_OVERSAMPLE));
+    }
+
+    /**
+     * Checks whether the HNSW graphs are built in native memory, out of the Java heap.
+     *
+     * @return true for the faiss and nmslib engines
+     */
+    public boolean isNative() {
+        return !"lucene".equals(engine);
+    }
+
+    /**
+     * Checks that the engine and space type are supported and that the parameters are positive.
+     *
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    public void validate() {
+        if (!ENGINES.contains(engine)) {
+            throw new IllegalArgumentException("Unsupported kNN engine: " + engine);
+        }
+        if (!SPACE_TYPES.contains(spaceType)) {
+            throw new IllegalArgumentException("Unsupported space type: " + spaceType);
+        }
+        if (!QUANTIZATIONS.contains(quantization)) {
+            throw new IllegalArgumentException("Unsupported vector quantization: " + quantization);
+        }
+        String quantizationEngine = switch (quantization) {
+            case "fp16", "binary" -> "faiss";
+            case "int8" -> "lucene";
+            default -> engine;
+        };
+        if (!quantizationEngine.equals(engine)) {
+            throw new IllegalArgumentException("Vector quantization " + quantization + " requires the "
+                    + quantizationEngine + " engine");
+        }
+        if (oversample != null && oversample < 1) {
+            throw new IllegalArgumentException("Oversampling factor must be at least 1: " + this);
+        }
+        if ((m != null && m < 2) || (efConstruction != null && efConstruction < 1) || (efSearch != null && efSearch < 1)
+                || (shards != null && shards < 1)) {
+            throw new IllegalArgumentException("kNN index parameters must be positive, m at least 2: " + this);
+        }
+    }
+
+    /**
+     * Checks that the profile is valid and that the cluster supports its settings: the lucene scalar quantizer
+     * with a dynamic confidence interval requires OpenSearch 2.16, binary quantization with a compression level
+     * requires OpenSearch 2.17, and the ef_search of the lucene engine, sent as a query parameter, OpenSearch 2.16.
+     *
+     * @param clusterVersion the version of the OpenSearch cluster
+     * @throws IllegalArgumentException if a setting is invalid or not supported by the cluster
+     */
+    public void validate(ClusterVersion clusterVersion) {
+        validate();
+        switch (quantization) {
+            case "int8" -> clusterVersion.require(2, 16, "Vector quantization int8");
+            case "binary" -> clusterVersion.require(2, 17, "Vector quantization binary");
+            default -> { }
+        }
+        if (efSearch != null && !isNative()) {
+            clusterVersion.require(2, 16, "ef_search with the lucene engine");
+        }
+    }
+
+    /**
+     * Builds the "method" of the vector field mapping, followed by the compression level of binary quantization.
+     * Scalar quantizations are set as the encoder of the method, with a confidence interval of 0 for lucene,
+     * so that the quantiles are computed dynamically from a sample of the vectors of every segment.
+     *
+     * @return the JSON members to add to the vector field mapping
+     */
+    public String buildVectorMapping() {
+        List<String> parameters = new ArrayList<>();
+        if (m != null) {
+            parameters.add("\"m\": " + m);
+        }
+        if (efConstruction != null) {
+            parameters.add("\"ef_construction\": " + efConstruction);
+        }
+        switch (quantization) {
+            case "fp16" -> parameters.add("\"encoder\": { \"name\": \"sq\", \"parameters\": { \"type\": \"fp16\" } }");
+            case "int8" -> parameters.add("\"encoder\": { \"name\": \"sq\", \"parameters\": { \"confidence_interval\": 0 } }");
+            default -> { }
+        }
+        String method = """
+                "method": {
+                  "engine": "%s",
+                  "space_type": "%s",
+                  "name": "hnsw",
+                  "parameters": { %s }
+                }""".formatted(engine, spaceType, String.join(", ", parameters));
+        return "binary".equals(quantization) ? method + ",\n\"compression_level\": \"32x\"" : method;
+    }
+
+    /**
+     * Builds a two-phase vector query: the approximate query, searching candidates on quantized vectors,
+     * is wrapped in a "script_score" query computing the exact score of every candidate with full-precision
+     * vectors. The query is returned unchanged when vectors are not quantized.
+     *
+     * @param knnQuery the approximate "knn" query, with {@link #getCandidates(int)} neighbours
+     * @param vector   the query vector, as a JSON array
+     * @return the vector query as a JSON string
+     */
+    public String buildRescoredQuery(String knnQuery, String vector) {
+        if (!isQuantized()) {
+            return knnQuery;
+        }
+        return """
+                {
+                  "script_score": {
+                    "query": %s,
+                    "script": {
+                      "lang": "knn",
+                      "source": "knn_score",
+                      "params": {
+                        "field": "%s",
+                        "query_value": %s,
+                        "space_type": "%s"
+                      }
+                    }
+                  }
+                }""".formatted(knnQuery, Index.EMBEDDING_FIELD, vector, spaceType);
+    }
+
+    /**
+     * Builds the index settings depending on the profile, following the "index.knn" setting.
+     *
+     * @return the JSON members to add to the index settings, each one preceded by a comma, or an empty string
+     */
+    public String buildSettings() {
+        StringBuilder settings = new StringBuilder();
+        if (shards != null) {
+            settings.append(",\n\"number_of_shards\": ").append(shards);
+        }
+        if (efSearch != null && isNative()) {
+            settings.append(",\n\"index.knn.algo_param.ef_search\": ").append(efSearch);
+        }
+        return settings.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "name=" + name + ", engine=" + engine + ", spaceType=" + spaceType + ", m=" + m
+                + ", efConstruction=" + efConstruction + ", efSearch=" + efSearch + ", shards=" + shards
+                + ", quantization=" + quantization + ", oversample=" + oversample;
+    }
+}
@@ -0,0 +1,216 @@
+package org.alfresco.opensearch.index;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Component mapping Alfresco node properties to filterable fields of the index.
+ * Every field is defined as "field:type:property", where the property is a prefixed or full QName,
+ * optionally followed by "/key" to read a value of a map property, such as "cm:content/mimetype".
+ * Fields are indexed as keyword, date or numeric fields, so that searches can filter on them inside the kNN query.
+ */
+@Component
+public class MetadataMapping {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetadataMapping.class);
+
+    // Namespaces of the prefixes accepted in field definitions
+    private static final Map<String, String> NAMESPACES = Map.of(
+            "cm", "http://www.alfresco.org/model/content/1.0",
+            "sys", "http://www.alfresco.org/model/system/1.0",
+            "app", "http://www.alfresco.org/model/application/1.0",
+            "st", "http://www.alfresco.org/model/site/1.0",
+            "exif", "http://www.alfresco.org/model/exif/1.0");
+
+    // OpenSearch field types allowed for metadata fields
+    private static final Set<String> TYPES = Set.of("keyword", "date", "long", "double", "boolean");
+
+    // Fields written by the indexer, which cannot be redefined
+    private static final Set<String> RESERVED_FIELDS = Set.of("id", "parentId", "dbid", "contentId", "name", "text",
+            "acl", "readers", "nodeRef", Index.ANCESTORS_FIELD, Index.SITE_FIELD, Index.EMBEDDING_FIELD,
+            Index.SPARSE_FIELD);
+
+    // Fields written by the indexer that can also be used in filters
+    private static final Set<String> FILTERABLE_FIELDS = Set.of(Index.PARENT_FIELD, "dbid", "contentId", "nodeRef",
+            Index.ANCESTORS_FIELD, Index.SITE_FIELD);
+
+    @Value("${opensearch.index.metadata.fields:}")
+    private List<String> definitions;
+
+    private List<MetadataField> fields = List.of();
+
+    @PostConstruct
+    public void init() {
+        fields = definitions.stream()
+                .map(String::trim)
+                .filter(definition -> !definition.isEmpty())
+                .map(MetadataMapping::parse)
+                .toList();
+        LOG.info("Indexing metadata fields {}", getFieldNames());
+    }
+
+    /**
+     * Parses a field definition "field:type:property[/key]".
+     *
+     * @param definition the field definition
+     * @return the metadata field
+     * @throws IllegalArgumentException if the definition is malformed, the type unknown or the field reserved
+     */
+    static MetadataField parse(String definition) {
+        String[] parts = definition.split(":", 3);
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("Invalid metadata field definition: " + definition);
+        }
+        String name = parts[0];
+        String type = parts[1];
+        if (RESERVED_FIELDS.contains(name)) {
+            throw new IllegalArgumentException("Metadata field " + name + " is reserved by the indexer");
+        }
+        if (!TYPES.contains(type)) {
+            throw new IllegalArgumentException("Unsupported type " + type + " of metadata field " + name);
+        }
+        String property = parts[2];
+        String key = null;
+        int slash = property.lastIndexOf('/');
+        if (slash > property.lastIndexOf('}')) {
+            key = property.substring(slash + 1);
+            property = property.substring(0, slash);
+        }
+        return new MetadataField(name, type, toQName(property), key);
+    }
+
+    /**
+     * Expands a prefixed QName such as "cm:modified" to its full form "{namespace}modified".
+     *
+     * @param property the prefixed or full QName
+     * @return the full QName
+     */
+    private static String toQName(String property) {
+        if (property.startsWith("{")) {
+            return property;
+        }
+        int colon = property.indexOf(':');
+        String namespace = colon > 0 ? NAMESPACES.get(property.substring(0, colon)) : null;
+        if (namespace == null) {
+            throw new IllegalArgumentException("Unknown namespace prefix of property " + property);
+        }
+        return "{" + namespace + "}" + property.substring(colon + 1);
+    }
+
+    /**
+     * Gets the names of the indexed metadata fields.
+     *
+     * @return the field names, in definition order
+     */
+    public Set<String> getFieldNames() {
+        return fields.stream().map(MetadataField::getName).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Checks whether a search can filter on a field, either a metadata field or a keyword or numeric field
+     * written by the indexer.
+     *
+     * @param field the field name
+     * @return true if the field can be filtered on
+     */
+    public boolean isFilterable(String field) {
+        return FILTERABLE_FIELDS.contains(field) || fields.stream().anyMatch(f -> f.getName().equals(field));
+    }
+
+    /**
+     * Builds the mapping of the metadata fields, as members of the "properties" object of the index mapping.
+     *
+     * @return the JSON member of every field mapping, empty when no field is defined
+     */
+    public List<String> buildMappings() {
+        return fields.stream()
+                .map(field -> "\"%s\": { \"type\": \"%s\" }".formatted(field.getName(), field.getType()))
+                .toList();
+    }
+
+    /**
+     * Extracts the values of the metadata fields from the properties of a node.
+     * Collection and multilingual properties produce several values, missing properties no field.
+     *
+     * @param properties the node properties, keyed by full QName
+     * @return the values of every field found in the properties
+     */
+    public Map<String, List<String>> extract(Map<String, Serializable> properties) {
+        Map<String, List<String>> metadata = new LinkedHashMap<>();
+        if (properties == null) {
+            return metadata;
+        }
+        for (MetadataField field : fields) {
+            List<String> values = new ArrayList<>();
+            addValues(properties.get(field.getProperty()), field.getKey(), values);
+            if (!values.isEmpty()) {
+                metadata.put(field.getName(), values);
+            }
+        }
+        return metadata;
+    }
+
+    private static void addValues(Object value, String key, List<String> values) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Map<?, ?> map) {
+            if (key != null) {
+                addValues(map.get(key), null, values);
+            } else {
+                // Multilingual text, indexed in every locale
+                map.values().forEach(localized -> addValues(localized, null, values));
+            }
+        } else if (value instanceof Collection<?> collection) {
+            collection.forEach(item -> addValues(item, key, values));
+        } else if (key == null) {
+            values.add(value.toString());
+        }
+    }
+
+    /**
+     * Definition of a metadata field: the indexed field, its type, and the node property it is read from.
+     */
+    static class MetadataField {
+        private final String name;
+        private final String type;
+        private final String property;
+        private final String key;
+
+        MetadataField(String name, String type, String property, String key) {
+            this.name = name;
+            this.type = type;
+            this.property = property;
+            this.key = key;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        String getProperty() {
+            return property;
+        }
+
+        String getKey() {
+            return key;
+        }
+    }
+}
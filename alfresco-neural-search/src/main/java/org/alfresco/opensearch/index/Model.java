@@ -1,12 +1,16 @@
 package org.alfresco.opensearch.index;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.alfresco.opensearch.client.OpenSearchClient;
 import org.alfresco.opensearch.client.OpenSearchClientFactory;
+import org.alfresco.utils.FutureUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.opensearch.client.Request;
 import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
 import org.opensearch.client.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +19,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,14 +33,47 @@ public class Model {
 
     static final Logger LOG = LoggerFactory.getLogger(Model.class);
 
-    static final int RETRY_DELAY_MS = 10000;
+    // Task polling starts with a short delay, doubled after every poll up to the maximum delay
+    static final int INITIAL_POLL_DELAY_MS = 200;
+    static final int MAX_POLL_DELAY_MS = 5000;
+    static final long TASK_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * State of a model deployed to its worker nodes.
+     */
+    public static final String DEPLOYED = "DEPLOYED";
+
+    /**
+     * State of a model deployed to some of its worker nodes only, which still runs inference.
+     */
+    public static final String PARTIALLY_DEPLOYED = "PARTIALLY_DEPLOYED";
+
+    // Text embedded to load a newly deployed model before the first request
+    private static final String WARM_UP_TEXT = "warm up";
+
+    /**
+     * Model formats supported by ML Commons for pretrained models.
+     */
+    public static final List<String> FORMATS = List.of("TORCH_SCRIPT", "ONNX");
 
     @Value("${opensearch.model.name}")
     private String modelName;
 
+    @Value("${opensearch.model.version:1.0.1}")
+    private String modelVersion;
+
+    @Value("${opensearch.model.format:TORCH_SCRIPT}")
+    private String modelFormat;
+
     @Autowired
     private OpenSearchClientFactory openSearchClientFactory;
 
+    @Autowired
+    private OpenSearchClient openSearchClient;
+
+    @Autowired
+    private ModelDeployment modelDeployment;
+
     /**
      * Retrieves an instance of RestClient from the factory.
      *
@@ -43,68 +84,347 @@ public class Model {
     }
 
     /**
-     * Registers, monitors, and deploys a model to the OpenSearch cluster.
+     * Registers, monitors, and deploys the configured model to the OpenSearch cluster.
      *
      * @param modelGroupId the model group ID to associate the model with
      * @return the deployed model ID
      * @throws Exception if an error occurs during the process
      */
     public String apply(String modelGroupId) throws Exception {
-        String taskId = registerModel(modelGroupId);
+        return apply(modelName, modelVersion, modelFormat, modelGroupId);
+    }
+
+    /**
+     * Registers, monitors, and deploys a pretrained model to the OpenSearch cluster.
+     * ONNX variants of the pretrained models compute the same embeddings as their TorchScript variants,
+     * usually with a faster inference on CPU.
+     *
+     * @param name         the name of the pretrained model
+     * @param version      the version of the pretrained model
+     * @param format       the model format, one of {@link #FORMATS}
+     * @param modelGroupId the model group ID to associate the model with
+     * @return the deployed model ID
+     * @throws Exception if an error occurs during the process
+     */
+    public String apply(String name, String version, String format, String modelGroupId) throws Exception {
+        if (!FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Unsupported model format " + format + ", expected one of " + FORMATS);
+        }
+        String taskId = registerModel(name, version, format, modelGroupId);
         waitForTaskCompletion(taskId);
 
         String modelId = getModelIdFromTask(taskId);
         taskId = deployModel(modelId);
         waitForTaskCompletion(taskId);
 
-        LOG.info("Model {} has been registered and deployed to model group {}", modelId, modelGroupId);
+        LOG.info("Model {} {} {} with id {} has been registered and deployed to model group {}", name, version, format,
+                modelId, modelGroupId);
+
+        return modelId;
+    }
+
+    /**
+     * Resolves the ID of the configured model, registering and deploying the model when it is not registered.
+     * A model ID known from a previous start is reused when it still identifies the configured model, by name,
+     * version and format, which saves a search of the model index.
+     *
+     * @param knownModelId the model ID persisted by a previous start, or null
+     * @param modelGroupId the model group ID to register the model to
+     * @return the model ID
+     * @throws Exception if an error occurs during the process
+     */
+    public String resolve(String knownModelId, String modelGroupId) throws Exception {
+        if (knownModelId != null) {
+            JsonNode known = getModel(knownModelId);
+            if (known != null && matches(known, modelName, modelVersion, modelFormat)) {
+                return knownModelId;
+            }
+        }
+        String modelId = getModelId(modelName, modelVersion, modelFormat);
+        return modelId != null ? modelId : apply(modelGroupId);
+    }
 
+    /**
+     * Resolves the ID of a pretrained model, registering it when it is not registered, and deploying it when it is
+     * not deployed.
+     *
+     * @param name         the name of the pretrained model
+     * @param version      the version of the pretrained model
+     * @param format       the model format, one of {@link #FORMATS}
+     * @param modelGroupId the model group ID to register the model to
+     * @return the ID of the deployed model
+     * @throws Exception if an error occurs during the process
+     */
+    public String ensureDeployed(String name, String version, String format, String modelGroupId) throws Exception {
+        String modelId = getModelId(name, version, format);
+        if (modelId == null) {
+            return apply(name, version, format, modelGroupId);
+        }
+        if (!DEPLOYED.equals(getModelState(modelId))) {
+            deploy(modelId);
+        }
         return modelId;
     }
 
     /**
-     * Searches and retrieves the model ID based on the model name.
+     * Searches and retrieves the ID of the configured model, based on the model name, version and format.
      *
      * @return the model ID
      * @throws Exception if an error occurs during the process
      */
     public String getModelId() throws Exception {
+        String modelId = getModelId(modelName, modelVersion, modelFormat);
+        if (modelId == null) {
+            throw new IOException("Model " + modelName + " " + modelVersion + " in format " + modelFormat
+                    + " is not registered");
+        }
+        return modelId;
+    }
+
+    /**
+     * Searches and retrieves the ID of a registered model, based on the model name, version and format.
+     * The search excludes the chunks of the model content, which also hold the model ID. As the phrase query on the
+     * analyzed name also matches longer names, the name is compared exactly. When the model is registered several
+     * times, a deployed model is preferred, then the most recently updated one.
+     *
+     * @param name    the name of the model
+     * @param version the version of the pretrained model
+     * @param format  the model format
+     * @return the model ID, or null if no such model is registered
+     * @throws IOException if an I/O error occurs
+     */
+    public String getModelId(String name, String version, String format) throws IOException {
         Request request = new Request("POST", "/_plugins/_ml/models/_search");
         String jsonString = """
                 {
+                  "size": 100,
+                  "_source": ["name", "version", "model_version", "model_format", "model_state", "last_updated_time"],
                   "query": {
-                    "match": {
-                      "name": "%s"
+                    "bool": {
+                      "must": [
+                        { "match_phrase": { "name": "%s" } },
+                        { "term": { "model_format": "%s" } }
+                      ],
+                      "must_not": [
+                        { "exists": { "field": "chunk_number" } }
+                      ]
                     }
                   }
                 }
                 """;
-        request.setEntity(new StringEntity(String.format(jsonString, modelName), ContentType.APPLICATION_JSON));
+        request.setEntity(new StringEntity(String.format(jsonString, name, format), ContentType.APPLICATION_JSON));
         Response response = restClient().performRequest(request);
 
         ObjectMapper objectMapper = new ObjectMapper();
         JsonNode jsonResponse = objectMapper.readTree(response.getEntity().getContent());
-        return jsonResponse.findValue("model_id").asText();
+        String modelId = null;
+        boolean deployed = false;
+        long updated = Long.MIN_VALUE;
+        for (JsonNode hit : jsonResponse.path("hits").path("hits")) {
+            JsonNode source = hit.path("_source");
+            if (!matches(source, name, version, format)) {
+                continue;
+            }
+            boolean hitDeployed = DEPLOYED.equals(source.path("model_state").asText());
+            long hitUpdated = source.path("last_updated_time").asLong();
+            if (modelId == null || (hitDeployed && !deployed) || (hitDeployed == deployed && hitUpdated > updated)) {
+                modelId = hit.path("_id").asText();
+                deployed = hitDeployed;
+                updated = hitUpdated;
+            }
+        }
+        return modelId;
+    }
+
+    /**
+     * Checks whether a registered model is the given pretrained model. The pretrained version is compared with
+     * both the "version" and the "model_version" of the model, which ML Commons versions differ on.
+     *
+     * @param model   the registered model
+     * @param name    the name of the pretrained model
+     * @param version the version of the pretrained model
+     * @param format  the model format
+     * @return true if the name, version and format match
+     */
+    private static boolean matches(JsonNode model, String name, String version, String format) {
+        return name.equals(model.path("name").asText())
+                && (version.equals(model.path("version").asText())
+                        || version.equals(model.path("model_version").asText()))
+                && format.equals(model.path("model_format").asText());
+    }
+
+    /**
+     * Gets the state of a model, such as "DEPLOYED", "UNDEPLOYED" or "PARTIALLY_DEPLOYED".
+     *
+     * @param modelId the model ID
+     * @return the model state, or null if the model does not exist
+     * @throws IOException if an I/O error occurs
+     */
+    public String getModelState(String modelId) throws IOException {
+        JsonNode model = getModel(modelId);
+        return model == null ? null : model.path("model_state").asText(null);
+    }
+
+    private JsonNode getModel(String modelId) throws IOException {
+        try {
+            return new ObjectMapper().readTree(openSearchClient.executeRequest("GET", "/_plugins/_ml/models/" + modelId, null));
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a first inference with a deployed model, so that the model is loaded before the first request.
+     *
+     * @param modelId the model ID
+     * @throws IOException if the inference fails
+     */
+    public void warmUp(String modelId) throws IOException {
+        long start = System.nanoTime();
+        predict(modelId, List.of(WARM_UP_TEXT));
+        LOG.info("Model {} warmed up in {} ms", modelId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Deploys a registered model to the ML nodes, waiting for the deployment to complete.
+     *
+     * @param modelId the model ID
+     * @throws Exception if the deployment fails
+     */
+    public void deploy(String modelId) throws Exception {
+        waitForTaskCompletion(deployModel(modelId));
+        LOG.info("Model {} has been deployed", modelId);
+    }
+
+    /**
+     * Undeploys a model from the ML nodes, releasing its memory. The model stays registered.
+     *
+     * @param modelId the model ID
+     * @throws IOException if an I/O error occurs
+     */
+    public void undeploy(String modelId) throws IOException {
+        openSearchClient.executeRequest("POST", "/_plugins/_ml/models/" + modelId + "/_undeploy", null);
+        LOG.info("Model {} has been undeployed", modelId);
+    }
+
+    /**
+     * Reads the configuration of a deployed model. When the model configuration does not declare the embedding
+     * dimension, it is measured by embedding a sample text.
+     *
+     * @param modelId the ID of the deployed text embedding model
+     * @return the model metadata
+     * @throws IOException if the model cannot be read or does not compute embeddings
+     */
+    public ModelMetadata getModelMetadata(String modelId) throws IOException {
+        String response = openSearchClient.executeRequest("GET", "/_plugins/_ml/models/" + modelId, null);
+        JsonNode model = new ObjectMapper().readTree(response);
+        int embeddingDimension = model.path("model_config").path("embedding_dimension").asInt(0);
+        if (embeddingDimension <= 0) {
+            embeddingDimension = predict(modelId, List.of("embedding dimension")).get(0).length;
+        }
+        if (embeddingDimension <= 0) {
+            throw new IOException("Model " + modelId + " does not compute embeddings");
+        }
+        ModelMetadata metadata = ModelMetadata.of(modelId, model, embeddingDimension);
+        LOG.info("Model metadata: {}", metadata);
+        return metadata;
+    }
+
+    /**
+     * Computes the embeddings of the given texts with the ML Commons predict API.
+     *
+     * @param modelId the ID of the deployed text embedding model
+     * @param texts   the texts to embed
+     * @return one embedding vector per text, in the same order as the texts
+     * @throws IOException if an I/O error occurs
+     */
+    public List<float[]> predict(String modelId, List<String> texts) throws IOException {
+        String response = openSearchClient.executeJsonRequest("POST", getPredictEndpoint(modelId),
+                generator -> writePredictRequest(generator, texts));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        return parseEmbeddings(modelId, texts, objectMapper.readTree(response));
+    }
+
+    /**
+     * Computes the embeddings of the given texts with the ML Commons predict API, without blocking the calling thread.
+     *
+     * @param modelId the ID of the deployed text embedding model
+     * @param texts   the texts to embed
+     * @return a future completed with one embedding vector per text, in the same order as the texts
+     */
+    public CompletableFuture<List<float[]>> predictAsync(String modelId, List<String> texts) {
+        CompletableFuture<String> response = openSearchClient.executeJsonRequestAsync("POST",
+                getPredictEndpoint(modelId), generator -> writePredictRequest(generator, texts));
+        return FutureUtils.propagateCancellation(response.thenApply(body -> {
+            try {
+                return parseEmbeddings(modelId, texts, new ObjectMapper().readTree(body));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), response);
+    }
+
+    private static String getPredictEndpoint(String modelId) {
+        return "/_plugins/_ml/_predict/text_embedding/" + modelId;
+    }
+
+    private static void writePredictRequest(JsonGenerator generator, List<String> texts) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("text_docs");
+        for (String text : texts) {
+            generator.writeString(text);
+        }
+        generator.writeEndArray();
+        generator.writeBooleanField("return_number", true);
+        generator.writeArrayFieldStart("target_response");
+        generator.writeString("sentence_embedding");
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static List<float[]> parseEmbeddings(String modelId, List<String> texts, JsonNode jsonResponse)
+            throws IOException {
+        List<float[]> embeddings = new ArrayList<>();
+        for (JsonNode inferenceResult : jsonResponse.path("inference_results")) {
+            JsonNode data = inferenceResult.path("output").path(0).path("data");
+            float[] embedding = new float[data.size()];
+            for (int i = 0; i < embedding.length; i++) {
+                embedding[i] = data.get(i).floatValue();
+            }
+            embeddings.add(embedding);
+        }
+        if (embeddings.size() != texts.size()) {
+            throw new IOException("Model " + modelId + " returned " + embeddings.size() + " embeddings for " + texts.size() + " texts");
+        }
+        return embeddings;
     }
 
     /**
-     * Registers the model with the given model group ID.
+     * Registers a pretrained model with the given model group ID.
      *
+     * @param name         the name of the pretrained model
+     * @param version      the version of the pretrained model
+     * @param format       the model format
      * @param modelGroupId the model group ID
      * @return the task ID associated with the registration
      * @throws IOException if an I/O error occurs
      */
-    private String registerModel(String modelGroupId) throws IOException {
+    private String registerModel(String name, String version, String format, String modelGroupId) throws IOException {
         Request request = new Request("POST", "/_plugins/_ml/models/_register");
         String jsonString = """
                 {
                   "name": "%s",
-                  "version": "1.0.1",
+                  "version": "%s",
                   "model_group_id": "%s",
-                  "model_format": "TORCH_SCRIPT"
+                  "model_format": "%s"
                 }
                 """;
-        request.setEntity(new StringEntity(String.format(jsonString, modelName, modelGroupId), ContentType.APPLICATION_JSON));
+        request.setEntity(new StringEntity(String.format(jsonString, name, version, modelGroupId, format),
+                ContentType.APPLICATION_JSON));
         Response response = restClient().performRequest(request);
 
         ObjectMapper objectMapper = new ObjectMapper();
@@ -115,17 +435,25 @@ public class Model {
     /**
      * Waits for the task with the specified task ID to complete by periodically checking its state.
      * This method will continue checking until the task state is no longer "CREATED" or "RUNNING".
+     * The delay between checks starts short, so that quick tasks such as the deployment of a cached model
+     * complete without waiting, and doubles up to a few seconds for long tasks such as a model download.
      *
      * @param taskId the ID of the task to monitor
-     * @throws IOException if an I/O error occurs during the request
+     * @throws IOException if an I/O error occurs during the request, or the task does not complete in time
      * @throws InterruptedException if the thread is interrupted while sleeping between retries
      */
     private void waitForTaskCompletion(String taskId) throws IOException, InterruptedException {
         ObjectMapper objectMapper = new ObjectMapper();
         String taskState = "CREATED";
+        long delay = INITIAL_POLL_DELAY_MS;
+        long deadline = System.currentTimeMillis() + TASK_TIMEOUT_MS;
 
         while ("CREATED".equals(taskState) || "RUNNING".equals(taskState)) {
-            TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MS);
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Task " + taskId + " did not complete in " + TASK_TIMEOUT_MS + " ms");
+            }
+            TimeUnit.MILLISECONDS.sleep(delay);
+            delay = Math.min(delay * 2, MAX_POLL_DELAY_MS);
             Request request = new Request("GET", "/_plugins/_ml/tasks/" + taskId);
             Response response = restClient().performRequest(request);
             JsonNode jsonResponse = objectMapper.readTree(response.getEntity().getContent());
@@ -154,7 +482,7 @@ public class Model {
     }
 
     /**
-     * Deploys the model with the specified model ID.
+     * Deploys the model with the specified model ID to the nodes planned by {@link ModelDeployment}.
      *
      * @param modelId the model ID to deploy
      * @return the task ID associated with the registration
@@ -162,6 +490,11 @@ public class Model {
      */
     private String deployModel(String modelId) throws IOException {
         Request request = new Request("POST", "/_plugins/_ml/models/" + modelId + "/_deploy");
+        List<String> plan = modelDeployment.plan();
+        if (!plan.isEmpty()) {
+            LOG.info("Deploying model {} to nodes {}", modelId, plan);
+            request.setEntity(new StringEntity(modelDeployment.buildDeployRequest(plan), ContentType.APPLICATION_JSON));
+        }
         Response response = restClient().performRequest(request);
 
         ObjectMapper objectMapper = new ObjectMapper();
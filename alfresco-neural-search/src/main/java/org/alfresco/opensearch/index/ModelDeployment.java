@@ -0,0 +1,173 @@
+package org.alfresco.opensearch.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.alfresco.opensearch.client.OpenSearchClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Component planning the nodes a model is deployed to, and checking that the model runs on every planned node.
+ * By default, ML Commons deploys the model to every eligible node. The plan is either the configured node IDs,
+ * or the dedicated ML nodes of the cluster, limited to the configured number of replicas. When the model only runs
+ * on ML nodes, data nodes are never planned, so that inference does not compete with searches.
+ */
+@Component
+public class ModelDeployment {
+
+    static final Logger LOG = LoggerFactory.getLogger(ModelDeployment.class);
+
+    /**
+     * Name of the thread pool running inference on ML Commons nodes.
+     */
+    public static final String PREDICT_THREAD_POOL = "opensearch_ml_predict";
+
+    static final String DEPLOYED = "DEPLOYED";
+
+    @Value("${opensearch.model.deploy.node.ids:}")
+    private List<String> nodeIds;
+
+    @Value("${opensearch.model.deploy.replicas:0}")
+    private int replicas;
+
+    @Value("${opensearch.ml.only.run.on.ml.node:false}")
+    private boolean onlyRunOnMlNode;
+
+    @Autowired
+    private OpenSearchClient openSearchClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Plans the nodes to deploy the model to: the configured node IDs, otherwise the ML nodes of the cluster,
+     * or its data nodes when it has no ML node and the model may run on data nodes. When a number of replicas is
+     * configured, only that many nodes are planned.
+     *
+     * @return the IDs of the planned nodes, or an empty list to let ML Commons deploy to every eligible node
+     * @throws IOException if the nodes of the cluster cannot be read
+     */
+    public List<String> plan() throws IOException {
+        List<String> configured = nodeIds.stream().map(String::trim).filter(id -> !id.isEmpty()).toList();
+        if (!configured.isEmpty()) {
+            return configured;
+        }
+        if (replicas <= 0 && !onlyRunOnMlNode) {
+            return List.of();
+        }
+        JsonNode nodes = objectMapper.readTree(openSearchClient.executeRequest("GET",
+                "/_nodes?filter_path=nodes.*.name,nodes.*.roles", null)).path("nodes");
+        List<String> candidates = getNodesWithRole(nodes, "ml");
+        if (candidates.isEmpty() && !onlyRunOnMlNode) {
+            candidates = getNodesWithRole(nodes, "data");
+        }
+        if (candidates.isEmpty()) {
+            throw new IllegalStateException("No ML node available to deploy the model, add a node with the ml role"
+                    + " or set opensearch.ml.only.run.on.ml.node to false");
+        }
+        if (replicas > candidates.size()) {
+            LOG.warn("Model deployment planned on {} nodes while {} replicas are configured", candidates.size(), replicas);
+        }
+        return replicas > 0 ? candidates.subList(0, Math.min(replicas, candidates.size())) : candidates;
+    }
+
+    private static List<String> getNodesWithRole(JsonNode nodes, String role) {
+        List<String> ids = new ArrayList<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = nodes.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> node = it.next();
+            for (JsonNode nodeRole : node.getValue().path("roles")) {
+                if (role.equals(nodeRole.asText())) {
+                    ids.add(node.getKey());
+                }
+            }
+        }
+        // Sorted, so that every instance of the app plans the same nodes
+        ids.sort(null);
+        return ids;
+    }
+
+    /**
+     * Builds the body of the deploy API request for a plan.
+     *
+     * @param plan the IDs of the planned nodes
+     * @return the request body, or null to deploy to every eligible node
+     */
+    public String buildDeployRequest(List<String> plan) {
+        if (plan.isEmpty()) {
+            return null;
+        }
+        ObjectNode body = objectMapper.createObjectNode();
+        plan.forEach(body.putArray("node_ids")::add);
+        return body.toString();
+    }
+
+    /**
+     * Checks whether the model is fully deployed, to every node it was deployed to, for a deployment without plan.
+     *
+     * @param modelId the ID of the model
+     * @return true if the model state is "DEPLOYED"
+     * @throws IOException if the model cannot be read
+     */
+    public boolean isDeployed(String modelId) throws IOException {
+        return DEPLOYED.equals(getModel(modelId).path("model_state").asText());
+    }
+
+    /**
+     * Finds the planned nodes the model is not deployed to, from the worker nodes of the model.
+     * The worker nodes of a model that is not fully deployed are not reliable: such a model misses every planned node.
+     *
+     * @param modelId the ID of the model
+     * @param plan    the IDs of the planned nodes
+     * @return the IDs of the planned nodes missing the model, empty when the model is deployed as planned
+     * @throws IOException if the model cannot be read
+     */
+    public List<String> getMissingNodes(String modelId, List<String> plan) throws IOException {
+        JsonNode model = getModel(modelId);
+        String state = model.path("model_state").asText();
+        Set<String> workers = getWorkerNodes(model);
+        return plan.stream()
+                .filter(node -> !DEPLOYED.equals(state) || !workers.contains(node))
+                .toList();
+    }
+
+    /**
+     * Gets the statistics of the predict thread pool of every node, with the nodes the model is deployed to.
+     *
+     * @param modelId the ID of the model
+     * @return the inference statistics of every node
+     * @throws IOException if the statistics cannot be read
+     */
+    public List<InferenceNodeStats> getInferenceStats(String modelId) throws IOException {
+        Set<String> workers = getWorkerNodes(getModel(modelId));
+        JsonNode nodes = objectMapper.readTree(openSearchClient.executeRequest("GET",
+                "/_nodes/stats/thread_pool?filter_path=nodes.*.name,nodes.*.thread_pool." + PREDICT_THREAD_POOL,
+                null)).path("nodes");
+        List<InferenceNodeStats> stats = new ArrayList<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = nodes.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> node = it.next();
+            stats.add(InferenceNodeStats.of(node.getKey(), node.getValue(), workers.contains(node.getKey())));
+        }
+        return stats;
+    }
+
+    private JsonNode getModel(String modelId) throws IOException {
+        return objectMapper.readTree(openSearchClient.executeRequest("GET", "/_plugins/_ml/models/" + modelId, null));
+    }
+
+    private static Set<String> getWorkerNodes(JsonNode model) {
+        Set<String> workers = new HashSet<>();
+        model.path("planning_worker_nodes").forEach(node -> workers.add(node.asText()));
+        return workers;
+    }
+}
@@ -7,6 +7,7 @@ import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.opensearch.client.Request;
 import org.opensearch.client.Response;
+import org.opensearch.client.ResponseException;
 import org.opensearch.client.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,11 +69,39 @@ public class ModelGroups {
     }
 
     /**
-     * Searches for a model group by name and retrieves its ID.
+     * Resolves the ID of the configured model group, registering the group when it does not exist.
+     * A model group ID known from a previous start is reused when it still identifies the configured group.
      *
+     * @param knownModelGroupId the model group ID persisted by a previous start, or null
      * @return the ID of the model group
      * @throws IOException if an I/O error occurs during the request
      */
+    public String resolve(String knownModelGroupId) throws IOException {
+        if (knownModelGroupId != null) {
+            try {
+                Response response = restClient().performRequest(
+                        new Request("GET", "/_plugins/_ml/model_groups/" + knownModelGroupId));
+                JsonNode group = new ObjectMapper().readTree(response.getEntity().getContent());
+                if (modelGroupName.equals(group.path("name").asText())) {
+                    return knownModelGroupId;
+                }
+            } catch (ResponseException e) {
+                if (e.getResponse().getStatusLine().getStatusCode() != 404) {
+                    throw e;
+                }
+            }
+        }
+        String modelGroupId = getModelGroupId();
+        return modelGroupId != null ? modelGroupId : apply();
+    }
+
+    /**
+     * Searches for a model group by name and retrieves its ID. As the match query on the analyzed name also matches
+     * other names, the name is compared exactly.
+     *
+     * @return the ID of the model group, or null if no such group is registered
+     * @throws IOException if an I/O error occurs during the request
+     */
     public String getModelGroupId() throws IOException {
         Request request = new Request("POST", "/_plugins/_ml/model_groups/_search");
         String jsonString = """
@@ -89,6 +118,11 @@ public class ModelGroups {
 
         ObjectMapper objectMapper = new ObjectMapper();
         JsonNode jsonResponse = objectMapper.readTree(response.getEntity().getContent());
-        return jsonResponse.findValue("_id").asText();
+        for (JsonNode hit : jsonResponse.path("hits").path("hits")) {
+            if (modelGroupName.equals(hit.path("_source").path("name").asText())) {
+                return hit.path("_id").asText();
+            }
+        }
+        return null;
     }
 }
@@ -0,0 +1,115 @@
+package org.alfresco.opensearch.index;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Configuration of a deployed text embedding model, read from the ML Commons model API:
+ * the dimension of its embeddings, the maximum number of tokens of its input and the framework it was built with.
+ * The embedding dimension sizes the vector field of the index, the maximum sequence length sizes the segments.
+ */
+public class ModelMetadata {
+    private final String modelId;
+    private final String name;
+    private final String version;
+    private final String format;
+    private final String framework;
+    private final String modelType;
+    private final int embeddingDimension;
+    private final Integer maxSequenceLength;
+
+    public ModelMetadata(String modelId, String name, String version, String format, String framework, String modelType,
+                         int embeddingDimension, Integer maxSequenceLength) {
+        this.modelId = modelId;
+        this.name = name;
+        this.version = version;
+        this.format = format;
+        this.framework = framework;
+        this.modelType = modelType;
+        this.embeddingDimension = embeddingDimension;
+        this.maxSequenceLength = maxSequenceLength;
+    }
+
+    /**
+     * Reads the metadata of a model from the response of the "GET _plugins/_ml/models/{model_id}" API.
+     * The maximum sequence length is read from "model_max_length", or from the "max_position_embeddings"
+     * of the transformer configuration held in "all_config".
+     *
+     * @param modelId            the ID of the model
+     * @param model              the model document
+     * @param embeddingDimension the embedding dimension, declared by the model configuration or measured
+     * @return the model metadata
+     * @throws IOException if the transformer configuration cannot be parsed
+     */
+    static ModelMetadata of(String modelId, JsonNode model, int embeddingDimension) throws IOException {
+        JsonNode config = model.path("model_config");
+        Integer maxSequenceLength = null;
+        if (config.path("model_max_length").isInt()) {
+            maxSequenceLength = config.path("model_max_length").asInt();
+        } else if (config.path("all_config").isTextual()) {
+            JsonNode allConfig = new ObjectMapper().readTree(config.path("all_config").asText());
+            if (allConfig.path("max_position_embeddings").isInt()) {
+                maxSequenceLength = allConfig.path("max_position_embeddings").asInt();
+            }
+        }
+        return new ModelMetadata(modelId, model.path("name").asText(null), model.path("model_version").asText(null),
+                model.path("model_format").asText(null), config.path("framework_type").asText(null),
+                config.path("model_type").asText(null), embeddingDimension, maxSequenceLength);
+    }
+
+    public String getModelId() {
+        return modelId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets the framework the model was built with, such as "SENTENCE_TRANSFORMERS" or "HUGGINGFACE_TRANSFORMERS".
+     *
+     * @return the framework type, or null when not declared
+     */
+    public String getFramework() {
+        return framework;
+    }
+
+    public String getModelType() {
+        return modelType;
+    }
+
+    /**
+     * Gets the number of dimensions of the embeddings computed by the model.
+     *
+     * @return the embedding dimension
+     */
+    public int getEmbeddingDimension() {
+        return embeddingDimension;
+    }
+
+    /**
+     * Gets the maximum number of tokens of a model input, longer inputs being truncated.
+     *
+     * @return the maximum sequence length, or null when not declared
+     */
+    public Integer getMaxSequenceLength() {
+        return maxSequenceLength;
+    }
+
+    @Override
+    public String toString() {
+        return "modelId=" + modelId + ", name=" + name + ", version=" + version + ", format=" + format
+                + ", framework=" + framework + ", modelType=" + modelType + ", embeddingDimension=" + embeddingDimension
+                + ", maxSequenceLength=" + maxSequenceLength;
+    }
+}
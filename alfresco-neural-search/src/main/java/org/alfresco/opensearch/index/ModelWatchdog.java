@@ -0,0 +1,60 @@
+package org.alfresco.opensearch.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Watchdog checking that the model is still deployed, as a restart of OpenSearch undeploys models unless
+ * they are deployed automatically. When the model is not deployed, the application is reported as not ready,
+ * the indexer pauses, and the OpenSearch configuration is applied again to deploy the model and warm it up,
+ * or to register it again when it was deleted. A model partially deployed still serves requests, and is deployed
+ * again to its missing nodes.
+ */
+@Component
+public class ModelWatchdog {
+
+    static final Logger LOG = LoggerFactory.getLogger(ModelWatchdog.class);
+
+    @Value("${opensearch.model.watchdog.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private Model model;
+
+    @Autowired
+    private OpenSearchConfiguration openSearchConfiguration;
+
+    /**
+     * Checks the state of the model every "opensearch.model.watchdog.interval" milliseconds, once OpenSearch
+     * is configured.
+     */
+    @Scheduled(fixedDelayString = "${opensearch.model.watchdog.interval:30000}",
+            initialDelayString = "${opensearch.model.watchdog.interval:30000}")
+    public void check() {
+        if (!enabled || !openSearchConfiguration.isConfigured()) {
+            return;
+        }
+        String modelId = openSearchConfiguration.getModelId();
+        try {
+            String state = model.getModelState(modelId);
+            if (Model.DEPLOYED.equals(state)) {
+                if (!openSearchConfiguration.isModelDeployed()) {
+                    LOG.info("WATCHDOG: Model {} is deployed again", modelId);
+                    openSearchConfiguration.setModelDeployed(true);
+                }
+                return;
+            }
+            LOG.warn("WATCHDOG: Model {} is {}, applying OpenSearch configuration again", modelId,
+                    state == null ? "missing" : state);
+            openSearchConfiguration.setModelDeployed(Model.PARTIALLY_DEPLOYED.equals(state));
+            openSearchConfiguration.apply();
+        } catch (Exception e) {
+            openSearchConfiguration.setModelDeployed(false);
+            LOG.error("WATCHDOG: Unable to restore model {}", modelId, e);
+        }
+    }
+}
@@ -1,12 +1,28 @@
 package org.alfresco.opensearch.index;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import org.alfresco.embedding.EmbeddingProvider;
+import org.alfresco.embedding.OpenSearchEmbeddingProvider;
 import org.alfresco.opensearch.ingest.Indexer;
 
 /**
@@ -17,6 +33,19 @@ public class OpenSearchConfiguration {
 
     static final Logger LOG = LoggerFactory.getLogger(OpenSearchConfiguration.class);
 
+    // Delay between attempts to configure OpenSearch, doubled after every failure up to the maximum delay
+    static final long INITIAL_RETRY_DELAY_MS = 1000;
+    static final long MAX_RETRY_DELAY_MS = 30000;
+
+    // Number of configuration steps run concurrently
+    private static final int BOOTSTRAP_THREADS = 4;
+
+    // Text embedded to check the dimension of the embeddings of the embedding provider
+    private static final String PROBE_TEXT = "dimension probe";
+
+    @Value("${batch.indexer.inference.mode:pipeline}")
+    private String inferenceMode;
+
     @Autowired
     private ClusterSettings clusterSettings;
 
@@ -26,6 +55,12 @@ public class OpenSearchConfiguration {
     @Autowired
     private Model model;
 
+    @Autowired
+    private ModelDeployment modelDeployment;
+
+    @Autowired
+    private SparseEncoding sparseEncoding;
+
     @Autowired
     private Pipeline pipeline;
 
@@ -35,41 +70,278 @@ public class OpenSearchConfiguration {
     @Autowired
     private Indexer indexer;
 
-    private String modelGroupId;
-    private String modelId;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Looked up once OpenSearch is configured, as the OpenSearch embedding provider depends on this component
+    @Autowired
+    private ObjectProvider<EmbeddingProvider> embeddingProvider;
+
+    private volatile String modelGroupId;
+    private volatile String modelId;
+    private volatile ModelMetadata modelMetadata;
+
+    // Whether the model was deployed when last checked, by the configuration or by the model watchdog
+    private volatile boolean modelDeployed;
+
+    // Error of the last configuration attempt, reported until OpenSearch is configured
+    private volatile String error;
 
     // Prevent indexer to be executed till OpenSearch is properly configured
     private final CountDownLatch latch = new CountDownLatch(1);
 
     /**
-     * Applies OpenSearch configuration settings.
-     * If the index exists, retrieves existing model group ID and model ID.
-     * Otherwise, applies cluster settings, registers model group, model, pipeline, and creates index.
+     * Configures OpenSearch once the application is started, on a dedicated thread so that the application serves
+     * requests, and reports that it is not ready, meanwhile. Failed attempts, such as while OpenSearch is starting,
+     * are retried with growing delays, except for configuration errors which require a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread bootstrap = new Thread(() -> {
+            long delay = INITIAL_RETRY_DELAY_MS;
+            while (true) {
+                try {
+                    apply();
+                    return;
+                } catch (IllegalStateException | IllegalArgumentException e) {
+                    error = e.getMessage();
+                    LOG.error("CONFIG: OpenSearch configuration failed, fix the configuration and restart", e);
+                    return;
+                } catch (Exception e) {
+                    error = e.getMessage();
+                    LOG.warn("CONFIG: OpenSearch configuration failed, retrying in {} ms: {}", delay, e.getMessage());
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+            }
+        }, "opensearch-bootstrap");
+        bootstrap.setDaemon(true);
+        bootstrap.start();
+    }
+
+    /**
+     * Applies OpenSearch configuration settings. Every step is idempotent, so that the configuration can be applied
+     * on every start and again by the model watchdog:
+     * <ul>
+     *   <li>cluster settings are applied, so that changes to the ML Commons settings apply on restart</li>
+     *   <li>the model group and the model are resolved from the IDs stored by a previous start, or searched,
+     *   and only registered when missing</li>
+     *   <li>the model is deployed to the nodes planned by {@link ModelDeployment} it does not run on yet,
+     *   and warmed up when it was deployed</li>
+     *   <li>the sparse encoding model and its tokenizer are resolved and deployed when neural sparse retrieval
+     *   is enabled</li>
+     *   <li>the ingest and search pipelines are applied for the model</li>
+     *   <li>if the index exists, checks that the model computes embeddings of the dimension of the index,
+     *   and maps newly added fields; otherwise, creates the index with the embedding dimension of the model</li>
+     *   <li>the embedding provider of the app is checked to compute embeddings of the dimension of the index</li>
+     *   <li>the kNN graphs and searches are warmed up by the listeners of {@link OpenSearchConfiguredEvent}</li>
+     * </ul>
+     * Steps that do not depend on each other run concurrently. The resolved IDs are stored in the control index.
+     * The application is only reported as ready once every step, including the warm-up, completed.
      *
      * @throws Exception if an error occurs during the application of configuration settings
      */
-    public void apply() throws Exception {
+    public synchronized void apply() throws Exception {
         LOG.info("-- CONFIG --");
-        if (index.existIndex()) {
-            // If index exists, retrieve existing model group ID and model ID
-            modelGroupId = modelGroups.getModelGroupId();
-            modelId = model.getModelId();
-            LOG.info("CONFIG: Index ready and model with id {} already available!", modelId);
-        } else {
-            // Apply cluster settings, register model group, model, pipeline, and create index
-            clusterSettings.apply();
-            modelGroupId = modelGroups.apply();
-            modelId = model.apply(modelGroupId);
-            pipeline.apply(modelId);
-            index.createKnnIndex();
-            index.createAlfrescoIndex();
-            indexer.verifyIndexStatus();
-            LOG.info("CONFIG: Index configured and model with id {} deployed!", modelId);
+        ExecutorService executor = Executors.newFixedThreadPool(BOOTSTRAP_THREADS);
+        try {
+            JsonNode known = index.getAlfrescoModel();
+            String knownModelGroupId = known != null ? known.path("modelGroupId").asText(null) : null;
+            String knownModelId = known != null ? known.path("modelId").asText(null) : null;
+
+            CompletableFuture<Void> settings = async(executor, () -> {
+                clusterSettings.apply();
+                return null;
+            });
+            CompletableFuture<Boolean> indexExists = async(executor, index::existIndex);
+            CompletableFuture<Boolean> controlIndexExists = async(executor, () -> index.existIndex(Index.CONTROL_INDEX));
+            modelGroupId = join(async(executor, () -> modelGroups.resolve(knownModelGroupId)));
+            // Models are deployed once the ML Commons settings, such as the ML node restriction, apply
+            join(settings);
+            CompletableFuture<Void> sparseModels = async(executor, () -> {
+                sparseEncoding.resolve(modelGroupId);
+                return null;
+            });
+            modelId = model.resolve(knownModelId, modelGroupId);
+            ensureDeployed();
+            modelMetadata = model.getModelMetadata(modelId);
+
+            CompletableFuture<Void> pipelines = async(executor, () -> {
+                join(sparseModels);
+                pipeline.apply(modelId);
+                return null;
+            });
+            CompletableFuture<Void> controlIndex = async(executor, () -> {
+                if (!join(controlIndexExists)) {
+                    index.createAlfrescoIndex();
+                }
+                return null;
+            });
+            int indexDimension;
+            if (join(indexExists)) {
+                indexDimension = index.getEmbeddingDimension();
+                if (indexDimension != modelMetadata.getEmbeddingDimension()) {
+                    throw new IllegalStateException("Model " + modelMetadata.getName() + " computes embeddings of dimension "
+                            + modelMetadata.getEmbeddingDimension() + " while the index holds vectors of dimension "
+                            + indexDimension + ", configure a new index name to reindex content with this model");
+                }
+                index.updateMappings();
+                join(pipelines);
+                LOG.info("CONFIG: Index ready and model with id {} already available!", modelId);
+            } else {
+                // The index refers to the ingest pipeline as default pipeline
+                join(pipelines);
+                indexDimension = modelMetadata.getEmbeddingDimension();
+                index.createKnnIndex(indexDimension);
+                indexer.verifyIndexStatus();
+                LOG.info("CONFIG: Index configured and model with id {} deployed!", modelId);
+            }
+            verifyEmbeddingProvider(indexDimension);
+            join(controlIndex);
+            index.updateAlfrescoModel(modelGroupId, modelId);
+        } finally {
+            executor.shutdownNow();
         }
+        eventPublisher.publishEvent(new OpenSearchConfiguredEvent(modelId));
+        modelDeployed = true;
         LOG.info("-- CONFIG --");
+        error = null;
         latch.countDown();
     }
 
+    /**
+     * Deploys the model as planned when it does not run on every planned node, such as after ML nodes were added
+     * or after OpenSearch restarted, and warms it up. Then logs the inference statistics of the nodes.
+     * The model is reported as deployed once the configuration, including the search warm-up, completed.
+     *
+     * @throws Exception if the deployment fails
+     */
+    private void ensureDeployed() throws Exception {
+        List<String> plan = modelDeployment.plan();
+        if (plan.isEmpty()) {
+            if (!modelDeployment.isDeployed(modelId)) {
+                LOG.info("CONFIG: Model {} is not fully deployed, deploying to every eligible node", modelId);
+                model.deploy(modelId);
+                model.warmUp(modelId);
+                if (!modelDeployment.isDeployed(modelId)) {
+                    LOG.warn("CONFIG: Model {} is not fully deployed", modelId);
+                }
+            }
+        } else {
+            List<String> missing = modelDeployment.getMissingNodes(modelId, plan);
+            if (!missing.isEmpty()) {
+                LOG.info("CONFIG: Model {} is not deployed on {}, deploying to {}", modelId, missing, plan);
+                model.deploy(modelId);
+                missing = modelDeployment.getMissingNodes(modelId, plan);
+                model.warmUp(modelId);
+            }
+            if (!missing.isEmpty()) {
+                LOG.warn("CONFIG: Model {} is not deployed on planned nodes {}", modelId, missing);
+            }
+        }
+        for (InferenceNodeStats stats : modelDeployment.getInferenceStats(modelId)) {
+            LOG.info("CONFIG: Inference on node {}", stats);
+        }
+    }
+
+    /**
+     * Checks that the embeddings computed by the app are comparable with the embeddings of the index.
+     * A provider other than the OpenSearch model only embeds documents in "client" inference mode: otherwise,
+     * documents would be embedded by the OpenSearch model and queries by another model. The provider must also
+     * compute embeddings of the dimension of the index, checked on a probe text.
+     *
+     * @param indexDimension the dimension of the vectors of the index
+     * @throws IOException if the probe text cannot be embedded
+     * @throws IllegalStateException if the provider does not match the index
+     */
+    private void verifyEmbeddingProvider(int indexDimension) throws IOException {
+        EmbeddingProvider provider = embeddingProvider.getObject();
+        if (!(provider instanceof OpenSearchEmbeddingProvider) && !"client".equals(inferenceMode)) {
+            throw new IllegalStateException("Embedding provider " + provider.getId() + " requires"
+                    + " batch.indexer.inference.mode=client, as documents are otherwise embedded by the OpenSearch model");
+        }
+        int dimension = provider.embed(List.of(PROBE_TEXT)).get(0).length;
+        if (dimension != indexDimension) {
+            throw new IllegalStateException("Embedding provider " + provider.getId() + " computes embeddings of dimension "
+                    + dimension + " while the index holds vectors of dimension " + indexDimension);
+        }
+    }
+
+    private static <T> CompletableFuture<T> async(ExecutorService executor, Callable<T> step) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return step.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Waits for a configuration step, throwing the exception of a failed step.
+     */
+    private static <T> T join(CompletableFuture<T> step) throws Exception {
+        try {
+            return step.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether OpenSearch is configured and the model is deployed, so that documents can be indexed
+     * and searched.
+     *
+     * @return true if the application is ready
+     */
+    public boolean isReady() {
+        return latch.getCount() == 0 && modelDeployed;
+    }
+
+    /**
+     * Checks whether OpenSearch has been configured once.
+     *
+     * @return true if OpenSearch is configured
+     */
+    public boolean isConfigured() {
+        return latch.getCount() == 0;
+    }
+
+    /**
+     * Checks whether the model was deployed when last checked.
+     *
+     * @return true if the model is deployed
+     */
+    public boolean isModelDeployed() {
+        return modelDeployed;
+    }
+
+    /**
+     * Records the state of the model, as checked by the model watchdog.
+     *
+     * @param modelDeployed whether the model is deployed
+     */
+    public void setModelDeployed(boolean modelDeployed) {
+        this.modelDeployed = modelDeployed;
+    }
+
+    /**
+     * Gets the error of the last configuration attempt.
+     *
+     * @return the error message, or null once OpenSearch is configured
+     */
+    public String getError() {
+        return error;
+    }
+
     /**
      * Gets the ID of the model group.
      *
@@ -88,6 +360,15 @@ public class OpenSearchConfiguration {
         return modelId;
     }
 
+    /**
+     * Gets the configuration of the deployed model.
+     *
+     * @return the model metadata, or null until OpenSearch is configured
+     */
+    public ModelMetadata getModelMetadata() {
+        return modelMetadata;
+    }
+
     /**
      * Gets the status of the latch
      *
@@ -97,4 +378,4 @@ public class OpenSearchConfiguration {
         return latch;
     }
 
-}
\ No newline at end of file
+}
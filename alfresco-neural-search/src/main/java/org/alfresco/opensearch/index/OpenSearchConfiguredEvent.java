@@ -0,0 +1,23 @@
+package org.alfresco.opensearch.index;
+
+/**
+ * Event published once OpenSearch is configured and the model is deployed, before the application reports that
+ * it is ready. Listeners run on the configuration thread, so that the application is only ready once they return.
+ */
+public class OpenSearchConfiguredEvent {
+
+    private final String modelId;
+
+    public OpenSearchConfiguredEvent(String modelId) {
+        this.modelId = modelId;
+    }
+
+    /**
+     * Gets the ID of the deployed model.
+     *
+     * @return the ID of the model
+     */
+    public String getModelId() {
+        return modelId;
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Component for managing OpenSearch pipelines.
@@ -21,12 +22,37 @@ public class Pipeline {
 
     static final Logger LOG = LoggerFactory.getLogger(Pipeline.class);
 
+    /**
+     * Score normalization techniques supported by the normalization processor.
+     */
+    public static final List<String> NORMALIZATION_TECHNIQUES = List.of("min_max", "l2");
+
+    /**
+     * Score combination techniques supported by the normalization processor.
+     */
+    public static final List<String> COMBINATION_TECHNIQUES = List.of("arithmetic_mean", "geometric_mean", "harmonic_mean");
+
     @Value("${opensearch.ingest.pipeline.name}")
     private String ingestPipelineName;
 
+    @Value("${opensearch.search.pipeline.name:${opensearch.ingest.pipeline.name}}")
+    private String searchPipelineName;
+
+    @Value("${opensearch.search.hybrid.normalization:min_max}")
+    private String normalization;
+
+    @Value("${opensearch.search.hybrid.combination:arithmetic_mean}")
+    private String combination;
+
+    @Value("${opensearch.search.hybrid.weights:0.3,0.7}")
+    private List<Double> weights;
+
     @Autowired
     private OpenSearchClientFactory openSearchClientFactory;
 
+    @Autowired
+    private SparseEncoding sparseEncoding;
+
     /**
      * Retrieves an instance of RestClient from the factory.
      *
@@ -38,6 +64,8 @@ public class Pipeline {
 
     /**
      * Applies the ingest and search pipelines for the given model ID.
+     * When neural sparse retrieval is enabled, the ingest pipeline also computes the sparse vector of segments,
+     * and a second ingest pipeline only computes sparse vectors, for segments indexed with precomputed embeddings.
      *
      * @param modelId the ID of the model to be used in the pipeline
      * @throws IOException if an I/O error occurs during the request
@@ -56,41 +84,82 @@ public class Pipeline {
                           "text": "passage_embedding"
                         }
                       }
-                    }
+                    }%s
                   ]
                 }
                 """;
-        request.setEntity(new StringEntity(String.format(ingestJsonString, modelId), ContentType.APPLICATION_JSON));
+        String sparseProcessor = sparseEncoding.isEnabled() ? ",\n" + sparseEncoding.buildProcessor() : "";
+        request.setEntity(new StringEntity(String.format(ingestJsonString, modelId, sparseProcessor),
+                ContentType.APPLICATION_JSON));
         restClient().performRequest(request);
 
-        // Search pipeline using 30% / 70% weight for text / neural retrieval
-        request = new Request("PUT", "/_search/pipeline/" + ingestPipelineName);
+        if (sparseEncoding.isEnabled()) {
+            request = new Request("PUT", "/_ingest/pipeline/" + sparseEncoding.getIngestPipelineName());
+            request.setEntity(new StringEntity("""
+                    {
+                      "description": "A neural sparse ingest pipeline",
+                      "processors": [
+                    %s
+                      ]
+                    }
+                    """.formatted(sparseEncoding.buildProcessor()), ContentType.APPLICATION_JSON));
+            restClient().performRequest(request);
+        }
+
+        // Search pipeline normalizing text / neural scores, using 30% / 70% weight by default
+        request = new Request("PUT", "/_search/pipeline/" + searchPipelineName);
         String searchJsonString = """
                 {
                   "description": "Post processor for hybrid search",
                   "phase_results_processors": [
+                %s
+                  ]
+                }
+                """;
+        request.setEntity(new StringEntity(
+                String.format(searchJsonString, buildNormalizationProcessor(normalization, combination, weights)),
+                ContentType.APPLICATION_JSON));
+        restClient().performRequest(request);
+
+        LOG.info("Ingest pipeline {} and search pipeline {} have been configured", ingestPipelineName, searchPipelineName);
+    }
+
+    /**
+     * Builds the normalization processor combining the scores of the text and neural sub-queries of a hybrid query.
+     * Weights apply to the sub-queries in the order they are declared in the hybrid query: text first, then neural.
+     *
+     * @param normalization the score normalization technique ("min_max" or "l2")
+     * @param combination   the score combination technique ("arithmetic_mean", "geometric_mean" or "harmonic_mean")
+     * @param weights       the weights of the text and neural sub-queries, adding up to 1
+     * @return the normalization processor as a JSON string
+     * @throws IllegalArgumentException if a technique is unknown or the weights are invalid
+     */
+    public static String buildNormalizationProcessor(String normalization, String combination, List<Double> weights) {
+        if (!NORMALIZATION_TECHNIQUES.contains(normalization)) {
+            throw new IllegalArgumentException("Unknown normalization technique: " + normalization);
+        }
+        if (!COMBINATION_TECHNIQUES.contains(combination)) {
+            throw new IllegalArgumentException("Unknown combination technique: " + combination);
+        }
+        if (weights.size() != 2 || Math.abs(weights.get(0) + weights.get(1) - 1.0) > 0.001) {
+            throw new IllegalArgumentException("Hybrid weights must be two values adding up to 1: " + weights);
+        }
+        return """
                     {
                       "normalization-processor": {
                         "normalization": {
-                          "technique": "min_max"
+                          "technique": "%s"
                         },
                         "combination": {
-                          "technique": "arithmetic_mean",
+                          "technique": "%s",
                           "parameters": {
                             "weights": [
-                              0.3,
-                              0.7
+                              %s,
+                              %s
                             ]
                           }
                         }
                       }
-                    }
-                  ]
-                }
-                """;
-        request.setEntity(new StringEntity(searchJsonString, ContentType.APPLICATION_JSON));
-        restClient().performRequest(request);
-
-        LOG.info("Ingest and search pipeline {} has been configured", ingestPipelineName);
+                    }""".formatted(normalization, combination, weights.get(0), weights.get(1));
     }
 }
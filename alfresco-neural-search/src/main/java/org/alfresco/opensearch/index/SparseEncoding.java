@@ -0,0 +1,148 @@
+package org.alfresco.opensearch.index;
+
+import org.alfresco.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Neural sparse retrieval, enabled with "opensearch.sparse.enabled" alongside the dense vectors.
+ * A doc-only sparse encoding model expands every segment into weighted vocabulary tokens at ingest, stored in a
+ * "rank_features" field of the inverted index. Queries are only split into tokens by the tokenizer model of the
+ * encoder, so that sparse searches run no model inference and hold no graph in memory, which suits CPU-only clusters.
+ */
+@Component
+public class SparseEncoding {
+
+    static final Logger LOG = LoggerFactory.getLogger(SparseEncoding.class);
+
+    // Format of the pretrained sparse encoding models
+    private static final String FORMAT = "TORCH_SCRIPT";
+
+    @Value("${opensearch.sparse.enabled:false}")
+    private boolean enabled;
+
+    @Value("${opensearch.sparse.model.name:amazon/neural-sparse/opensearch-neural-sparse-encoding-doc-v2-distill}")
+    private String modelName;
+
+    @Value("${opensearch.sparse.model.version:1.0.0}")
+    private String modelVersion;
+
+    @Value("${opensearch.sparse.tokenizer.name:amazon/neural-sparse/opensearch-neural-sparse-tokenizer-v1}")
+    private String tokenizerName;
+
+    @Value("${opensearch.sparse.tokenizer.version:1.0.1}")
+    private String tokenizerVersion;
+
+    @Value("${opensearch.ingest.pipeline.name}")
+    private String ingestPipelineName;
+
+    @Autowired
+    private Model model;
+
+    private volatile String modelId;
+    private volatile String tokenizerId;
+
+    /**
+     * Resolves the sparse encoding model and its tokenizer, registering and deploying them when needed.
+     *
+     * @param modelGroupId the model group ID to register the models to
+     * @throws Exception if a model cannot be registered or deployed
+     */
+    public void resolve(String modelGroupId) throws Exception {
+        if (!enabled) {
+            return;
+        }
+        modelId = model.ensureDeployed(modelName, modelVersion, FORMAT, modelGroupId);
+        tokenizerId = model.ensureDeployed(tokenizerName, tokenizerVersion, FORMAT, modelGroupId);
+        LOG.info("Sparse encoding model {} with id {} and tokenizer {} with id {} deployed", modelName, modelId,
+                tokenizerName, tokenizerId);
+    }
+
+    /**
+     * Checks whether segments are encoded into sparse vectors.
+     *
+     * @return true when neural sparse retrieval is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the ID of the sparse encoding model.
+     *
+     * @return the model ID, or null until it is resolved
+     */
+    public String getModelId() {
+        return modelId;
+    }
+
+    /**
+     * Gets the ID of the tokenizer model encoding queries.
+     *
+     * @return the tokenizer model ID, or null until it is resolved
+     */
+    public String getTokenizerId() {
+        return tokenizerId;
+    }
+
+    /**
+     * Gets the name of the ingest pipeline only computing sparse vectors, for segments indexed with their
+     * precomputed dense embeddings.
+     *
+     * @return the name of the sparse ingest pipeline
+     */
+    public String getIngestPipelineName() {
+        return ingestPipelineName + "-sparse";
+    }
+
+    /**
+     * Builds the mapping of the sparse vector field.
+     *
+     * @return the JSON member to add to the index properties
+     */
+    public String buildMapping() {
+        return "\"%s\": { \"type\": \"rank_features\" }".formatted(Index.SPARSE_FIELD);
+    }
+
+    /**
+     * Builds the ingest processor expanding the segment text into its sparse vector.
+     *
+     * @return the "sparse_encoding" processor as a JSON string
+     */
+    public String buildProcessor() {
+        return """
+                    {
+                      "sparse_encoding": {
+                        "model_id": "%s",
+                        "field_map": {
+                          "text": "%s"
+                        }
+                      }
+                    }""".formatted(modelId, Index.SPARSE_FIELD);
+    }
+
+    /**
+     * Builds a "neural_sparse" query, the query text being split into tokens by the tokenizer model.
+     *
+     * @param query the search query
+     * @return the sparse query as a JSON string
+     * @throws IllegalArgumentException if neural sparse retrieval is not enabled
+     */
+    public String buildQuery(String query) {
+        if (!enabled) {
+            throw new IllegalArgumentException("Sparse search requires opensearch.sparse.enabled");
+        }
+        return """
+                {
+                  "neural_sparse": {
+                    "%s": {
+                      "query_text": "%s",
+                      "model_id": "%s"
+                    }
+                  }
+                }""".formatted(Index.SPARSE_FIELD, JsonUtils.escape(query), tokenizerId);
+    }
+}
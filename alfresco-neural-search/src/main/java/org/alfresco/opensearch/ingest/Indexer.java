@@ -1,16 +1,25 @@
 package org.alfresco.opensearch.ingest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.alfresco.opensearch.client.OpenSearchClient;
+import org.alfresco.opensearch.index.Index;
+import org.alfresco.opensearch.index.MetadataMapping;
+import org.alfresco.opensearch.index.SparseEncoding;
 import org.alfresco.opensearch.model.acl.AclEntry;
-import org.alfresco.utils.JsonUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Component for indexing documents in OpenSearch.
@@ -22,9 +31,20 @@ public class Indexer {
     @Value("${opensearch.index.name}")
     private String openSearchIndex;
 
+    // Number of documents returned by every page of a moved documents lookup
+    private static final int MOVED_DOCUMENTS_PAGE_SIZE = 1000;
+
+    @Value("${opensearch.index.source.excludes.vector:false}")
+    private boolean excludeVectorFromSource;
+
     @Autowired
     private OpenSearchClient openSearchClient;
 
+    @Autowired
+    private SparseEncoding sparseEncoding;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     /**
      * Indexes a document in OpenSearch.
      *
@@ -35,32 +55,11 @@ public class Indexer {
      * @param text the document text
      */
     public void index(String id, Long dbid, String contentId, String name, String text) {
-        try {
-            String document = """
-                {
-                  "id": "%s",
-                  "dbid": %d,
-                  "contentId": "%s",
-                  "name": "%s",
-                  "text": "%s"
-                }
-                """.formatted(
-                    id, 
-                    dbid, 
-                    contentId, 
-                    JsonUtils.escape(name), 
-                    JsonUtils.escape(text)
-                );
-
-            openSearchClient.executeRequest("POST", "/" + openSearchIndex + "/_doc/" + id, document);
-        } catch (Exception e) {
-            LOG.error("Error indexing document {}", id, e);
-        }
+        index(id, dbid, contentId, name, text, null, null, null);
     }
 
     /**
-     * Indexes a document with ACL information.
-     * This is a placeholder implementation that will be expanded later.
+     * Indexes a document with ACL information. The readers are the authorities searches are filtered on.
      *
      * @param id the document ID
      * @param dbid the database ID
@@ -73,30 +72,156 @@ public class Indexer {
      */
     public void index(String id, Long dbid, String contentId, String name, String text, 
                      List<AclEntry> acl, List<String> readers, String nodeRef) {
-        // For now, just use the regular index method
-        index(id, dbid, contentId, name, text);
+        index(id, dbid, contentId, name, text, acl, readers, nodeRef, null);
     }
 
     /**
-     * Deletes a document from the index if it exists.
+     * Indexes a document with ACL information and metadata fields, which searches can filter on.
      *
      * @param id the document ID
+     * @param dbid the database ID
+     * @param contentId the content ID
+     * @param name the document name
+     * @param text the document text
+     * @param acl the ACL entries
+     * @param readers the list of readers
+     * @param nodeRef the node reference
+     * @param metadata the values of the metadata and location fields, the metadata fields as extracted by {@link MetadataMapping}
      */
-    public void deleteDocumentIfExists(String id) {
+    public void index(String id, Long dbid, String contentId, String name, String text,
+                      List<AclEntry> acl, List<String> readers, String nodeRef, Map<String, List<String>> metadata) {
         try {
-            openSearchClient.executeRequest("DELETE", "/" + openSearchIndex + "/_doc/" + id, null);
+            // The segment text is written once, escaped and encoded by the generator, instead of being copied
+            // into an escaped string, a formatted body and its bytes
+            openSearchClient.executeJsonRequest("POST", "/" + openSearchIndex + "/_doc/" + id,
+                    generator -> writeSegment(generator, id, dbid, contentId, name, text, acl, readers, nodeRef,
+                            metadata, null));
         } catch (Exception e) {
-            LOG.debug("Error deleting document {}: {}", id, e.getMessage());
+            LOG.error("Error indexing document {}", id, e);
         }
     }
 
     /**
-     * Alias for deleteDocumentIfExists for backward compatibility.
+     * Indexes segments of a document with their precomputed embeddings in a single bulk request, which skips the
+     * ingest pipeline of the index, or only computes their sparse vectors when neural sparse retrieval is enabled.
+     * Segments are numbered from the given position, so that the segments of a document can be indexed in several
+     * batches. Segments rejected by OpenSearch are logged, the others are kept.
+     *
+     * @param documentId the document ID
+     * @param from the position of the first segment in the document
+     * @param dbid the database ID
+     * @param contentId the content ID
+     * @param name the document name
+     * @param segments the segment texts
+     * @param embeddings the embedding vectors of the segments, in the same order
+     * @param acl the ACL entries
+     * @param readers the list of readers
+     * @param nodeRef the node reference
+     * @param metadata the values of the metadata and location fields
+     * @return the number of segments rejected by OpenSearch, or the number of segments when the request failed
+     */
+    public int indexSegments(String documentId, int from, Long dbid, String contentId, String name,
+                             List<String> segments, List<float[]> embeddings, List<AclEntry> acl, List<String> readers,
+                             String nodeRef, Map<String, List<String>> metadata) {
+        try {
+            String pipeline = sparseEncoding.isEnabled() ? sparseEncoding.getIngestPipelineName() : "_none";
+            String response = openSearchClient.executeNdjsonRequest("POST",
+                    "/" + openSearchIndex + "/_bulk?pipeline=" + pipeline, generator -> {
+                        for (int i = 0; i < segments.size(); i++) {
+                            String id = documentId + "_" + (from + i);
+                            generator.writeStartObject();
+                            generator.writeObjectFieldStart("index");
+                            generator.writeStringField("_id", id);
+                            generator.writeEndObject();
+                            generator.writeEndObject();
+                            generator.writeRaw('\n');
+                            writeSegment(generator, id, dbid, contentId, name, segments.get(i), acl, readers, nodeRef,
+                                    metadata, embeddings.get(i));
+                            generator.writeRaw('\n');
+                        }
+                    });
+            JsonNode bulk = objectMapper.readTree(response);
+            int failures = 0;
+            if (bulk.path("errors").asBoolean()) {
+                for (JsonNode item : bulk.path("items")) {
+                    JsonNode error = item.path("index").path("error");
+                    if (!error.isMissingNode()) {
+                        failures++;
+                        LOG.error("Error indexing segment {}: {}", item.path("index").path("_id").asText(), error);
+                    }
+                }
+            }
+            return failures;
+        } catch (Exception e) {
+            LOG.error("Error indexing segments {} to {} of document {}", from, from + segments.size() - 1, documentId, e);
+            return segments.size();
+        }
+    }
+
+    /**
+     * Writes the fields of a segment, with its embedding vector when it is computed before indexing.
+     */
+    private static void writeSegment(JsonGenerator generator, String id, Long dbid, String contentId, String name,
+                                     String text, List<AclEntry> acl, List<String> readers, String nodeRef,
+                                     Map<String, List<String>> metadata, float[] embedding) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", id);
+        generator.writeStringField("parentId", getParentId(id));
+        generator.writeObjectField("dbid", dbid);
+        generator.writeStringField("contentId", contentId);
+        generator.writeStringField("name", name == null ? "" : name);
+        generator.writeStringField("text", text == null ? "" : text);
+        if (embedding != null) {
+            generator.writeArrayFieldStart(Index.EMBEDDING_FIELD);
+            for (float value : embedding) {
+                generator.writeNumber(value);
+            }
+            generator.writeEndArray();
+        }
+        if (acl != null) {
+            generator.writeArrayFieldStart("acl");
+            for (AclEntry entry : acl) {
+                generator.writeStartObject();
+                generator.writeStringField("authority", entry.getAuthority());
+                generator.writeStringField("permission", entry.getPermission());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        if (readers != null) {
+            generator.writeArrayFieldStart(Index.READERS_FIELD);
+            for (String reader : readers) {
+                generator.writeString(reader);
+            }
+            generator.writeEndArray();
+        }
+        if (nodeRef != null) {
+            generator.writeStringField("nodeRef", nodeRef);
+        }
+        if (metadata != null) {
+            for (Map.Entry<String, List<String>> field : metadata.entrySet()) {
+                generator.writeArrayFieldStart(field.getKey());
+                for (String value : field.getValue()) {
+                    generator.writeString(value);
+                }
+                generator.writeEndArray();
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Deletes every segment of a document from the index, so that a document whose new content has fewer segments
+     * keeps no segment of its previous content. Deleting a document that is not indexed does nothing.
      *
      * @param id the document ID
+     * @throws IOException if the segments cannot be deleted, so that the document is not indexed over them
      */
-    public void deleteDocument(String id) {
-        deleteDocumentIfExists(id);
+    public void deleteDocument(String id) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("query").putObject("term").put(Index.PARENT_FIELD, id);
+        openSearchClient.executeRequest("POST", "/" + openSearchIndex + "/_delete_by_query?conflicts=proceed",
+                body.toString());
     }
 
     /**
@@ -106,16 +231,104 @@ public class Indexer {
      * @return the content ID, or an empty string if not found
      */
     public String getContentId(String id) {
+        JsonNode source = getIndexedDocument(id);
+        return source == null ? "" : source.path("contentId").asText("");
+    }
+
+    /**
+     * Gets the indexed fields of a document, as stored with its first segment.
+     *
+     * @param id the document ID
+     * @return the source of the first segment of the document, or null if the document is not indexed
+     */
+    public JsonNode getIndexedDocument(String id) {
         try {
-            String response = openSearchClient.executeRequest("GET", "/" + openSearchIndex + "/_doc/" + id, null);
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.readTree(response).path("_source").path("contentId").asText("");
+            String response = openSearchClient.executeRequest("GET", "/" + openSearchIndex + "/_doc/" + id + "_0", null);
+            JsonNode source = objectMapper.readTree(response).path("_source");
+            return source.isObject() ? source : null;
         } catch (Exception e) {
-            LOG.debug("Error getting content ID for document {}: {}", id, e.getMessage());
-            return "";
+            LOG.debug("Error getting indexed document {}: {}", id, e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * Updates the location of every segment of a document that was moved without changing its content,
+     * so that the document is neither fetched from the repository nor split again.
+     * When the embedding vector is kept out of the stored "_source", segments are updated through the ingest
+     * pipeline to compute their embedding again, otherwise the pipeline is skipped.
+     *
+     * @param id        the document ID
+     * @param ancestors the ids of the ancestor nodes of the document
+     * @param site      the short name of the site of the document, or null
+     */
+    public void updateLocation(String id, List<String> ancestors, String site) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("query").putObject("term").put(Index.PARENT_FIELD, id);
+        ObjectNode script = body.putObject("script");
+        script.put("lang", "painless");
+        script.put("source", """
+                ctx._source.%s = params.ancestors;
+                if (params.site == null) { ctx._source.remove('%s') } else { ctx._source.%s = params.site }
+                """.formatted(Index.ANCESTORS_FIELD, Index.SITE_FIELD, Index.SITE_FIELD));
+        ObjectNode params = script.putObject("params");
+        ancestors.forEach(params.putArray("ancestors")::add);
+        params.put("site", site);
+        try {
+            openSearchClient.executeRequest("POST", "/" + openSearchIndex + "/_update_by_query?conflicts=proceed"
+                    + (excludeVectorFromSource ? "" : "&pipeline=_none"), body.toString());
+        } catch (Exception e) {
+            LOG.error("Error updating location of document {}", id, e);
+        }
+    }
+
+    /**
+     * Finds the documents indexed under a node whose indexed ancestors miss one of the current ancestors of that node,
+     * that is the documents moved along with the node since they were indexed.
+     *
+     * @param nodeId    the id of the node, usually a folder
+     * @param ancestors the current ids of the ancestor nodes of the node
+     * @return the database IDs of the moved documents
+     * @throws IOException if the lookup fails
+     */
+    public List<Long> findMovedDocuments(String nodeId, List<String> ancestors) throws IOException {
+        List<Long> dbids = new ArrayList<>();
+        if (ancestors.isEmpty()) {
+            return dbids;
+        }
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("size", 0);
+        ObjectNode bool = body.putObject("query").putObject("bool");
+        bool.putArray("filter").addObject().putObject("term").put(Index.ANCESTORS_FIELD, nodeId);
+        ArrayNode missing = bool.putArray("should");
+        for (String ancestor : ancestors) {
+            missing.addObject().putObject("bool").putObject("must_not").putObject("term").put(Index.ANCESTORS_FIELD, ancestor);
+        }
+        bool.put("minimum_should_match", 1);
+        ObjectNode composite = body.putObject("aggs").putObject("documents").putObject("composite");
+        composite.put("size", MOVED_DOCUMENTS_PAGE_SIZE);
+        composite.putArray("sources").addObject().putObject("dbid").putObject("terms").put("field", "dbid");
+
+        JsonNode documents;
+        do {
+            documents = objectMapper.readTree(openSearchClient.executeRequest("POST",
+                    "/" + openSearchIndex + "/_search", body.toString())).path("aggregations").path("documents");
+            documents.path("buckets").forEach(bucket -> dbids.add(bucket.path("key").path("dbid").asLong()));
+            composite.set("after", documents.get("after_key"));
+        } while (documents.has("after_key") && documents.path("buckets").size() == MOVED_DOCUMENTS_PAGE_SIZE);
+        return dbids;
+    }
+
+    /**
+     * Gets the id of the document a segment belongs to, removing the segment suffix (documentId_0 -> documentId).
+     *
+     * @param segmentId the segment ID
+     * @return the document ID
+     */
+    public static String getParentId(String segmentId) {
+        return segmentId.contains("_") ? segmentId.substring(0, segmentId.lastIndexOf("_")) : segmentId;
+    }
+
     /**
      * Verifies the status of the index.
      *
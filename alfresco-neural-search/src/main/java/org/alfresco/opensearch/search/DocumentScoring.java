@@ -0,0 +1,28 @@
+package org.alfresco.opensearch.search;
+
+/**
+ * Strategies to score a document from the scores of its matching passages.
+ */
+public enum DocumentScoring {
+
+    /**
+     * The document scores as its best passage.
+     */
+    MAX,
+
+    /**
+     * The document scores as the sum of its top-n passages, favouring documents that match in several places.
+     */
+    SUM;
+
+    /**
+     * Resolves a scoring strategy from its name, ignoring case.
+     *
+     * @param name the strategy name ("max" or "sum")
+     * @return the matching scoring strategy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static DocumentScoring fromName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
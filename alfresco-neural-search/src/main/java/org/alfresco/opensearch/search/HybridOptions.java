@@ -0,0 +1,66 @@
+package org.alfresco.opensearch.search;
+
+import java.util.List;
+
+/**
+ * Per-request score normalization settings for hybrid queries, overriding the configured search pipeline.
+ * Unset values fall back to the configured defaults.
+ */
+public class HybridOptions {
+
+    private final List<Double> weights;
+    private final String normalization;
+    private final String combination;
+
+    public HybridOptions(List<Double> weights, String normalization, String combination) {
+        this.weights = weights;
+        this.normalization = normalization;
+        this.combination = combination;
+    }
+
+    /**
+     * Gets the weights of the keyword and neural sub-queries, in this order.
+     *
+     * @return the sub-query weights, or null for the configured default
+     */
+    public List<Double> getWeights() {
+        return weights;
+    }
+
+    /**
+     * Gets the score normalization technique ("min_max" or "l2").
+     *
+     * @return the normalization technique, or null for the configured default
+     */
+    public String getNormalization() {
+        return normalization;
+    }
+
+    /**
+     * Gets the score combination technique ("arithmetic_mean", "geometric_mean" or "harmonic_mean").
+     *
+     * @return the combination technique, or null for the configured default
+     */
+    public String getCombination() {
+        return combination;
+    }
+
+    /**
+     * Checks whether any setting overrides the configured search pipeline.
+     *
+     * @return true if at least one setting is set
+     */
+    public boolean isCustomized() {
+        return weights != null || normalization != null || combination != null;
+    }
+
+    /**
+     * Describes the hybrid settings, used as part of the search result cache key.
+     *
+     * @return the settings as a string
+     */
+    @Override
+    public String toString() {
+        return "weights=" + weights + ", normalization=" + normalization + ", combination=" + combination;
+    }
+}
@@ -0,0 +1,106 @@
+package org.alfresco.opensearch.search;
+
+/**
+ * Per-request settings of the vector part of a query, trading recall against latency.
+ * Either a number of nearest neighbours k or a radial limit (minimum score or maximum distance) is used.
+ */
+public class KnnOptions {
+
+    private final Integer k;
+    private final Float minScore;
+    private final Float maxDistance;
+    private final Integer efSearch;
+
+    public KnnOptions(Integer k, Float minScore, Float maxDistance, Integer efSearch) {
+        this.k = k;
+        this.minScore = minScore;
+        this.maxDistance = maxDistance;
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * No vector settings: k is derived from the number of results.
+     *
+     * @return the default kNN options
+     */
+    public static KnnOptions defaults() {
+        return new KnnOptions(null, null, null, null);
+    }
+
+    /**
+     * Gets the number of nearest neighbours.
+     *
+     * @return the value of k, or null to derive it from the number of results
+     */
+    public Integer getK() {
+        return k;
+    }
+
+    /**
+     * Gets the minimum score of the neighbours returned by a radial search.
+     *
+     * @return the minimum score, or null when not searching by score
+     */
+    public Float getMinScore() {
+        return minScore;
+    }
+
+    /**
+     * Gets the maximum distance of the neighbours returned by a radial search.
+     *
+     * @return the maximum distance in the space of the index, or null when not searching by distance
+     */
+    public Float getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Gets the size of the HNSW candidate queue at search time, higher values improving recall at a latency cost.
+     *
+     * @return the value of "ef_search", or null for the value configured on the index
+     */
+    public Integer getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * Checks whether neighbours are limited by score or distance instead of by number.
+     *
+     * @return true for a radial search
+     */
+    public boolean isRadial() {
+        return minScore != null || maxDistance != null;
+    }
+
+    /**
+     * Checks that the settings are consistent.
+     *
+     * @throws IllegalArgumentException if more than one of k, minimum score and maximum distance is set,
+     *                                  or if a value is out of range
+     */
+    public void validate() {
+        int limits = (k != null ? 1 : 0) + (minScore != null ? 1 : 0) + (maxDistance != null ? 1 : 0);
+        if (limits > 1) {
+            throw new IllegalArgumentException("Only one of k, minScore and maxDistance can be set");
+        }
+        if (k != null && k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        if (maxDistance != null && maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative");
+        }
+        if (efSearch != null && efSearch < 1) {
+            throw new IllegalArgumentException("efSearch must be positive");
+        }
+    }
+
+    /**
+     * Describes the vector settings, used as part of the search result cache key.
+     *
+     * @return the settings as a string
+     */
+    @Override
+    public String toString() {
+        return "k=" + k + ", minScore=" + minScore + ", maxDistance=" + maxDistance + ", efSearch=" + efSearch;
+    }
+}
@@ -0,0 +1,44 @@
+package org.alfresco.opensearch.search;
+
+/**
+ * One of the searches of a multi-search request.
+ */
+public class MultiSearchQuery {
+
+    private final String query;
+    private final String searchType;
+    private final SearchOptions options;
+
+    public MultiSearchQuery(String query, String searchType, SearchOptions options) {
+        this.query = query;
+        this.searchType = searchType;
+        this.options = options;
+    }
+
+    /**
+     * Gets the search query.
+     *
+     * @return the search query
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Gets the type of search (neural, keyword, hybrid, hybrid-bool).
+     *
+     * @return the search type
+     */
+    public String getSearchType() {
+        return searchType;
+    }
+
+    /**
+     * Gets the options of the search.
+     *
+     * @return the search options
+     */
+    public SearchOptions getOptions() {
+        return options;
+    }
+}
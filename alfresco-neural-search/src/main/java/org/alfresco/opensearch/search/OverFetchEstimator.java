@@ -0,0 +1,64 @@
+package org.alfresco.opensearch.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tunes the number of kNN candidates requested when results are collapsed by document.
+ *
+ * <p>Neural queries match segments, so a page of {@code size} distinct documents needs {@code k} to cover several
+ * segments per document. The estimator keeps a moving average of the observed segments per distinct document
+ * among the kNN candidates, and derives {@code k} from it for the following queries.</p>
+ */
+@Component
+public class OverFetchEstimator {
+    private static final Logger LOG = LoggerFactory.getLogger(OverFetchEstimator.class);
+
+    // Weight of the latest observation in the moving average
+    private static final double SMOOTHING = 0.2;
+
+    // Safety margin over the estimated ratio, as documents are not evenly distributed
+    private static final double HEADROOM = 1.25;
+
+    // Upper bound accepted by OpenSearch for k
+    private static final int MAX_K = 10000;
+
+    @Value("${opensearch.search.knn.overfetch.initial:3}")
+    private double initialFactor;
+
+    @Value("${opensearch.search.knn.overfetch.max:10}")
+    private int maxFactor;
+
+    private volatile double segmentsPerDocument = Double.NaN;
+
+    /**
+     * Gets the number of kNN candidates needed to fill a page with the given number of distinct documents.
+     *
+     * @param size the number of distinct documents requested
+     * @return the number of kNN candidates to request
+     */
+    public int candidates(int size) {
+        double ratio = Double.isNaN(segmentsPerDocument) ? initialFactor : segmentsPerDocument * HEADROOM;
+        double factor = Math.max(1.0, Math.min(maxFactor, ratio));
+        return Math.min(MAX_K, (int) Math.ceil(size * factor));
+    }
+
+    /**
+     * Records the outcome of a collapsed kNN query.
+     *
+     * @param candidates the number of segments matched by the kNN query
+     * @param documents  the number of distinct documents among those segments
+     */
+    public synchronized void observe(long candidates, long documents) {
+        if (candidates <= 0 || documents <= 0) {
+            return;
+        }
+        double sample = (double) candidates / documents;
+        segmentsPerDocument = Double.isNaN(segmentsPerDocument)
+                ? sample
+                : SMOOTHING * sample + (1 - SMOOTHING) * segmentsPerDocument;
+        LOG.debug("kNN over-fetch: {} segments for {} documents, moving average {}", candidates, documents, segmentsPerDocument);
+    }
+}
@@ -0,0 +1,139 @@
+package org.alfresco.opensearch.search;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.alfresco.embedding.EmbeddingProvider;
+import org.alfresco.utils.FutureUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Computes query embeddings with the {@link EmbeddingProvider} and keeps them in a bounded cache,
+ * so that repeated and paginated queries are sent as plain kNN vector queries without running the model again.
+ */
+@Component
+public class QueryEmbeddings {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryEmbeddings.class);
+
+    @Value("${opensearch.search.embedding.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${opensearch.search.embedding.cache.size:10000}")
+    private long maximumSize;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
+    private AsyncCache<String, float[]> cache;
+
+    /**
+     * Creates the embedding cache, evicting entries with the W-TinyLFU policy once the maximum size is reached.
+     * The cache holds futures, so that model inference runs outside of the cache lock: a blocking call in the
+     * mapping function would pin the carrier of a virtual thread.
+     */
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Gets the embedding of a query, computing it on a cache miss. Concurrent requests for the same query
+     * wait for a single model inference.
+     *
+     * @param query the query text
+     * @return the query embedding, or null when embeddings are disabled or cannot be computed,
+     *         in which case the query text has to be embedded by OpenSearch
+     */
+    public float[] getEmbedding(String query) {
+        String modelId = embeddingProvider.getId();
+        if (!enabled || modelId == null) {
+            return null;
+        }
+        try {
+            return lookup(modelId, normalize(query)).join();
+        } catch (CompletionException e) {
+            LOG.warn("Unable to compute embedding for query with model {}: {}", modelId, e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the embedding of a query without blocking the calling thread, computing it on a cache miss.
+     * Cancelling the returned future does not cancel the inference, which may be shared with other requests.
+     *
+     * @param query the query text
+     * @return a future completed with the query embedding, or with null when embeddings are disabled or cannot
+     *         be computed, in which case the query text has to be embedded by OpenSearch
+     */
+    public CompletableFuture<float[]> getEmbeddingAsync(String query) {
+        String modelId = embeddingProvider.getId();
+        if (!enabled || modelId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return lookup(modelId, normalize(query)).handle((embedding, error) -> {
+            if (error == null) {
+                return embedding;
+            }
+            if (FutureUtils.isCancellation(error)) {
+                throw new CancellationException();
+            }
+            LOG.warn("Unable to compute embedding for query with model {}: {}", modelId, error.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Gets the cached embedding future of a normalized query, starting the model inference on a cache miss.
+     * Failed inferences are removed from the cache.
+     *
+     * @param modelId the ID of the text embedding model
+     * @param text    the normalized query text
+     * @return the future embedding
+     */
+    private CompletableFuture<float[]> lookup(String modelId, String text) {
+        return cache.get(modelId + "\n" + text,
+                (key, executor) -> embeddingProvider.embedAsync(List.of(text)).thenApply(embeddings -> embeddings.get(0)));
+    }
+
+    /**
+     * Gets the statistics of the embedding cache.
+     *
+     * @return the cache statistics
+     */
+    public CacheStats getStats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * Gets the number of embeddings in the cache.
+     *
+     * @return the approximate number of cached embeddings
+     */
+    public long getSize() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    /**
+     * Normalizes a query so that equivalent queries share the same cache entry.
+     *
+     * @param query the query text
+     * @return the query in NFKC form, trimmed and with whitespace runs collapsed
+     */
+    static String normalize(String query) {
+        return Normalizer.normalize(query, Normalizer.Form.NFKC).trim().replaceAll("\\s+", " ");
+    }
+}
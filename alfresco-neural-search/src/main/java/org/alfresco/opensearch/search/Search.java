@@ -4,7 +4,17 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.alfresco.opensearch.client.AlfrescoContentApiClient;
 import org.alfresco.opensearch.client.OpenSearchClient;
+import org.alfresco.opensearch.index.ClusterVersion;
+import org.alfresco.opensearch.index.Index;
+import org.alfresco.opensearch.index.KnnIndexProfile;
+import org.alfresco.opensearch.index.MetadataMapping;
+import org.alfresco.opensearch.index.Pipeline;
+import org.alfresco.opensearch.index.SparseEncoding;
+import org.alfresco.opensearch.ingest.Indexer;
 import org.alfresco.rest.DocumentBean;
+import org.alfresco.rest.MultiSearchResult;
+import org.alfresco.rest.SearchPage;
+import org.alfresco.rest.Snippet;
 import org.alfresco.utils.JsonUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,9 +23,19 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Component for performing searches in OpenSearch.
@@ -24,17 +44,97 @@ import java.util.List;
 public class Search {
     private static final Logger LOG = LoggerFactory.getLogger(Search.class);
 
+    // Maximum number of results reachable by pagination, bounded by "index.max_result_window" and the maximum k
+    private static final int MAX_DEPTH = 10000;
+
+    // Number of kNN candidates for the neural part of legacy "bool" hybrid queries
+    private static final int HYBRID_K = 10;
+
+    // Search types
+    private static final String KEYWORD = "keyword";
+    private static final String HYBRID = "hybrid";
+    private static final String HYBRID_BOOL = "hybrid-bool";
+    private static final String SPARSE = "sparse";
+
+    // Name of the inner hits holding the top passages of a collapsed document
+    private static final String PASSAGES = "passages";
+
     @Value("${opensearch.index.name}")
     private String openSearchIndex;
 
+    @Value("${opensearch.results.count:20}")
+    private int defaultSize;
+
+    @Value("${opensearch.search.snippet.size:150}")
+    private int snippetSize;
+
+    @Value("${opensearch.search.collapse.enabled:true}")
+    private boolean collapseByDefault;
+
+    @Value("${opensearch.search.collapse.scoring:max}")
+    private String defaultScoring;
+
+    @Value("${opensearch.search.collapse.passages:3}")
+    private int defaultPassages;
+
+    @Value("${opensearch.search.pipeline.name:${opensearch.ingest.pipeline.name}}")
+    private String searchPipelineName;
+
+    @Value("${opensearch.search.hybrid.normalization:min_max}")
+    private String defaultNormalization;
+
+    @Value("${opensearch.search.hybrid.combination:arithmetic_mean}")
+    private String defaultCombination;
+
+    @Value("${opensearch.search.hybrid.weights:0.3,0.7}")
+    private List<Double> defaultWeights;
+
+    @Value("${opensearch.search.page.size.max:100}")
+    private int maxPageSize;
+
+    @Value("${opensearch.search.pit.keepalive:5m}")
+    private String pitKeepAlive;
+
+    @Value("${opensearch.search.multi.max:20}")
+    private int maxMultiSearch;
+
+    @Autowired
+    private OverFetchEstimator overFetchEstimator;
+
+    @Autowired
+    private QueryEmbeddings queryEmbeddings;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
     @Autowired
     private OpenSearchClient openSearchClient;
 
     @Autowired
     private AlfrescoContentApiClient alfrescoContentApiClient;
 
+    @Autowired
+    private MetadataMapping metadataMapping;
+
+    @Autowired
+    private Index index;
+
+    @Autowired
+    private SparseEncoding sparseEncoding;
+
+    @Autowired
+    private ClusterVersion clusterVersion;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * Consumer of the documents of a streamed search.
+     */
+    @FunctionalInterface
+    public interface DocumentConsumer {
+        void accept(DocumentBean document) throws IOException;
+    }
+
     /**
      * Performs a search using the specified query and search type.
      *
@@ -44,21 +144,382 @@ public class Search {
      * @throws Exception if an error occurs during the search
      */
     public List<DocumentBean> search(String query, String searchType) throws Exception {
-        String searchQuery;
-        switch (searchType.toLowerCase()) {
-            case "keyword":
-                searchQuery = buildKeywordQuery(query);
-                break;
-            case "hybrid":
-                searchQuery = buildHybridQuery(query);
-                break;
-            default:
-                searchQuery = buildNeuralQuery(query);
-                break;
+        return search(query, searchType, SearchOptions.defaults());
+    }
+
+    /**
+     * Performs a search using the specified query and search type, returning only the requested parts of each hit.
+     *
+     * @param query      the search query
+     * @param searchType the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @param options    number of results, matching, source fields, snippet, document collapsing
+     *                   and hybrid scoring options
+     * @return a list of document beans matching the search criteria
+     * @throws Exception if an error occurs during the search
+     */
+    public List<DocumentBean> search(String query, String searchType, SearchOptions options) throws Exception {
+        SearchOptions resolvedOptions = resolve(options);
+        if (!resolvedOptions.isCached()) {
+            return executeSearch(query, searchType, resolvedOptions, resolvedOptions.getSize());
         }
+        return searchResultCache.get(SearchResultCache.getKey("documents", query, searchType, resolvedOptions, null),
+                () -> executeSearch(query, searchType, resolvedOptions, resolvedOptions.getSize()));
+    }
 
-        JsonNode response = executeRequest("POST", "/" + openSearchIndex + "/_search", searchQuery);
-        return processSearchResults(response);
+    /**
+     * Performs a search without blocking the calling thread: the query embedding and the search request are sent
+     * with the asynchronous OpenSearch client, and results are processed on its I/O reactor threads.
+     * Cancelling the returned future, or reaching the timeout, aborts the pending requests to OpenSearch.
+     *
+     * @param query      the search query
+     * @param searchType the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @param options    number of results, matching, source fields, snippet, document collapsing
+     *                   and hybrid scoring options
+     * @param timeout    the maximum duration of the search, or null for no timeout
+     * @return a future completed with the list of document beans matching the search criteria,
+     *         or with a {@link java.util.concurrent.TimeoutException} once the timeout is reached
+     */
+    public CompletableFuture<List<DocumentBean>> searchAsync(String query, String searchType, SearchOptions options,
+                                                             Duration timeout) {
+        SearchOptions resolvedOptions = resolve(options);
+        CompletableFuture<List<DocumentBean>> result = resolvedOptions.isCached()
+                ? searchResultCache.getAsync(SearchResultCache.getKey("documents", query, searchType, resolvedOptions, null),
+                        () -> executeSearchAsync(query, searchType, resolvedOptions))
+                : executeSearchAsync(query, searchType, resolvedOptions);
+        return timeout == null ? result : result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a search against OpenSearch asynchronously, computing the query embedding first when needed.
+     *
+     * @param query           the search query
+     * @param searchType      the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @param resolvedOptions the resolved search options
+     * @return a future completed with the list of document beans, cancelling pending requests when it fails
+     */
+    private CompletableFuture<List<DocumentBean>> executeSearchAsync(String query, String searchType,
+                                                                     SearchOptions resolvedOptions) {
+        boolean collapsedByOpenSearch = resolvedOptions.getCollapse() && !isHybrid(searchType);
+        CompletableFuture<float[]> embedding = !usesEmbedding(searchType)
+                ? CompletableFuture.completedFuture(null)
+                : queryEmbeddings.getEmbeddingAsync(query);
+        AtomicReference<CompletableFuture<String>> request = new AtomicReference<>();
+
+        CompletableFuture<List<DocumentBean>> result = embedding
+                .thenCompose(vector -> {
+                    request.set(openSearchClient.executeRequestAsync("POST",
+                            getSearchEndpoint(searchType, resolvedOptions, false),
+                            buildQuery(query, vector, searchType, resolvedOptions, resolvedOptions.getSize(),
+                                    collapsedByOpenSearch, null)));
+                    return request.get();
+                })
+                .thenApply(body -> {
+                    JsonNode response = readResponse(body);
+                    observeOverFetch(response, resolvedOptions, searchType);
+                    return processSearchResults(response, query, resolvedOptions, collapsedByOpenSearch,
+                            resolvedOptions.getSize());
+                });
+
+        result.whenComplete((documents, error) -> {
+            if (error != null) {
+                embedding.cancel(true);
+                CompletableFuture<String> pending = request.get();
+                if (pending != null) {
+                    pending.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+
+    private JsonNode readResponse(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs a search against OpenSearch and converts the hits to document beans.
+     *
+     * @param query           the search query
+     * @param searchType      the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @param resolvedOptions the resolved search options
+     * @param size            the number of results, documents when collapsed
+     * @return a list of document beans matching the search criteria
+     * @throws IOException if an I/O error occurs
+     */
+    private List<DocumentBean> executeSearch(String query, String searchType, SearchOptions resolvedOptions, int size)
+            throws IOException {
+        boolean collapsedByOpenSearch = resolvedOptions.getCollapse() && !isHybrid(searchType);
+        JsonNode response = executeRequest("POST", getSearchEndpoint(searchType, resolvedOptions, false),
+                buildQuery(query, searchType, resolvedOptions, size, collapsedByOpenSearch, null));
+        observeOverFetch(response, resolvedOptions, searchType);
+        return processSearchResults(response, query, resolvedOptions, collapsedByOpenSearch, size);
+    }
+
+    /**
+     * Performs a search streaming every document to the consumer as soon as its hit is parsed from the OpenSearch
+     * response, so that the first results are sent before the whole response is read and no list of results is
+     * built. Results grouped by document here, or ranked by the sum of their passage scores, are only known once
+     * every hit is read, and are handed over after processing the full response instead.
+     * Streamed searches do not use the search result cache.
+     *
+     * @param query      the search query
+     * @param searchType the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @param options    number of results, matching, source fields, snippet, document collapsing
+     *                   and hybrid scoring options
+     * @param consumer   the consumer of every document, in ranking order
+     * @throws IOException if an I/O error occurs, including when the consumer fails to write a document
+     */
+    public void searchStream(String query, String searchType, SearchOptions options, DocumentConsumer consumer)
+            throws IOException {
+        SearchOptions resolvedOptions = resolve(options);
+        int size = resolvedOptions.getSize();
+        boolean collapsedByOpenSearch = resolvedOptions.getCollapse() && !isHybrid(searchType);
+        if (resolvedOptions.getCollapse()
+                && (!collapsedByOpenSearch || resolvedOptions.getScoring() == DocumentScoring.SUM)) {
+            for (DocumentBean document : executeSearch(query, searchType, resolvedOptions, size)) {
+                consumer.accept(document);
+            }
+            return;
+        }
+
+        SearchResponseParser parser = new SearchResponseParser(objectMapper);
+        JsonNode summary = openSearchClient.executeRequest("POST",
+                getSearchEndpoint(searchType, resolvedOptions, false),
+                buildQuery(query, searchType, resolvedOptions, size, collapsedByOpenSearch, null),
+                response -> parser.parse(response, hit -> consumer.accept(
+                        toDocumentBean(hit, collapsedByOpenSearch ? getPassageHits(hit) : null, query, resolvedOptions))));
+        observeOverFetch(summary, resolvedOptions, searchType);
+    }
+
+    /**
+     * Tunes the over-fetching of collapsed neural queries with the number of distinct documents found
+     * among the kNN candidates.
+     *
+     * @param response        the search response, or its summary without hits
+     * @param resolvedOptions the resolved search options
+     * @param searchType      the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     */
+    private void observeOverFetch(JsonNode response, SearchOptions resolvedOptions, String searchType) {
+        if (resolvedOptions.getCollapse() && isNeural(searchType)) {
+            overFetchEstimator.observe(
+                    response.path("hits").path("total").path("value").asLong(),
+                    response.path("aggregations").path("documents").path("value").asLong());
+        }
+    }
+
+    /**
+     * Runs several searches in a single "_msearch" round trip, which OpenSearch executes in parallel.
+     * The authorities of the user are resolved once for the whole batch, and the query embeddings of every
+     * search are computed concurrently through the embedding cache. Hybrid searches define their normalization
+     * in the request, as the configured search pipeline cannot be referenced by a search of the batch.
+     * Batched searches do not use the search result cache.
+     *
+     * @param queries  the searches to run
+     * @param username the authenticated user, whose permissions filter every search, or null for no filtering
+     * @return the result of every search in request order, a failed search not failing the others
+     * @throws Exception if the multi-search request fails
+     */
+    public List<MultiSearchResult> multiSearch(List<MultiSearchQuery> queries, String username) throws Exception {
+        if (queries.isEmpty() || queries.size() > maxMultiSearch) {
+            throw new IllegalArgumentException("A multi-search holds between 1 and %d searches".formatted(maxMultiSearch));
+        }
+        List<String> authorities = getAuthorities(username);
+        List<SearchOptions> resolvedOptions = new ArrayList<>();
+        List<CompletableFuture<float[]>> embeddings = new ArrayList<>();
+        for (MultiSearchQuery search : queries) {
+            SearchOptions options = resolve(search.getOptions(), authorities);
+            if (isHybrid(search.getSearchType()) && !options.getHybrid().isCustomized()) {
+                options = options.toBuilder()
+                        .hybrid(new HybridOptions(defaultWeights, defaultNormalization, defaultCombination))
+                        .build();
+            }
+            resolvedOptions.add(options);
+            embeddings.add(!usesEmbedding(search.getSearchType())
+                    ? CompletableFuture.completedFuture(null)
+                    : queryEmbeddings.getEmbeddingAsync(search.getQuery()));
+        }
+        CompletableFuture.allOf(embeddings.toArray(CompletableFuture[]::new)).join();
+
+        // Every header and body is written on a single line, as required by the "_msearch" API
+        String body = openSearchClient.executeNdjsonRequest("POST", "/_msearch", generator -> {
+            for (int i = 0; i < queries.size(); i++) {
+                MultiSearchQuery search = queries.get(i);
+                SearchOptions options = resolvedOptions.get(i);
+                generator.writeStartObject();
+                generator.writeStringField("index", openSearchIndex);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                // Line breaks of the query only separate JSON tokens, line breaks in strings being escaped
+                generator.writeRawValue(buildQuery(search.getQuery(), embeddings.get(i).join(), search.getSearchType(),
+                        options, options.getSize(), isCollapsedByOpenSearch(search, options), null).replace('\n', ' '));
+                generator.writeRaw('\n');
+            }
+        });
+
+        JsonNode responses = objectMapper.readTree(body).path("responses");
+        List<MultiSearchResult> results = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            MultiSearchQuery search = queries.get(i);
+            SearchOptions options = resolvedOptions.get(i);
+            JsonNode response = responses.path(i);
+            if (response.has("error")) {
+                JsonNode error = response.path("error");
+                LOG.warn("Search {} of multi-search failed: {}", i, error);
+                results.add(new MultiSearchResult(null, null, error.path("reason").asText(error.toString())));
+            } else {
+                observeOverFetch(response, options, search.getSearchType());
+                results.add(new MultiSearchResult(
+                        processSearchResults(response, search.getQuery(), options, isCollapsedByOpenSearch(search, options),
+                                options.getSize()),
+                        response.path("took").asLong(), null));
+            }
+        }
+        return results;
+    }
+
+    private static boolean isCollapsedByOpenSearch(MultiSearchQuery search, SearchOptions options) {
+        return options.getCollapse() && !isHybrid(search.getSearchType());
+    }
+
+    /**
+     * Gets the authorities of a user.
+     *
+     * @param username the username, may be null
+     * @return the authorities of the user, or null when there is no user
+     * @throws Exception if the authorities cannot be retrieved from Alfresco
+     */
+    private List<String> getAuthorities(String username) throws Exception {
+        return username != null ? alfrescoContentApiClient.getUserAuthorities(username, null) : null;
+    }
+
+    /**
+     * Gets a page of search results. The first page opens a point in time, which every following page reads
+     * from through the returned cursor, so that pages are consistent with each other while documents are indexed.
+     * <p>
+     * Uncollapsed neural, keyword, sparse and "bool" hybrid results are paged with "search_after", sorting by
+     * score then by Lucene doc id within the point in time. Hybrid queries, which support neither sorting nor
+     * "search_after", and results collapsed by document, as OpenSearch does not combine "collapse" with
+     * "search_after", are over-fetched up to the requested page and sliced instead. Collapsed results of every
+     * search type, hybrid included, are grouped by document here from the over-fetched segment hits, so that
+     * a document appears on a single page. The query embedding of following pages is served from the
+     * {@link QueryEmbeddings} cache, so the model runs once per query.
+     *
+     * @param query      the search query, ignored when a cursor is given
+     * @param searchType the type of search (neural, keyword, hybrid, hybrid-bool, sparse), ignored when a cursor is given
+     * @param options    matching, source fields, snippet, document collapsing and hybrid scoring options,
+     *                   which have to be the same for every page; their number of results is not used
+     * @param size       the number of results per page, ignored when a cursor is given
+     * @param cursor     the cursor returned with the previous page, or null for the first page
+     * @return the page of results, with the cursor of the next page unless this is the last page
+     * @throws IllegalArgumentException if the page size or the cursor is invalid, or the options differ from
+     *                                  the options of the first page
+     * @throws Exception if an error occurs during the search
+     */
+    public SearchPage searchPage(String query, String searchType, SearchOptions options, int size, String cursor)
+            throws Exception {
+        if (cursor == null && (size < 1 || size > maxPageSize)) {
+            throw new IllegalArgumentException("Page size must be between 1 and %d".formatted(maxPageSize));
+        }
+        SearchOptions resolvedOptions = resolve(options);
+        String optionsHash = SearchCursor.hash(resolvedOptions);
+        SearchCursor position = cursor != null
+                ? SearchCursor.decode(cursor)
+                : new SearchCursor(query, searchType, size, 0, openPointInTime(), null, optionsHash);
+        if (!optionsHash.equals(position.getOptionsHash())) {
+            throw new IllegalArgumentException("Search options must be the same for every page of a cursor");
+        }
+        int depth = (position.getPage() + 1) * position.getSize();
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Pagination is limited to the first %d results".formatted(MAX_DEPTH));
+        }
+
+        boolean sliced = resolvedOptions.getCollapse() || isHybrid(position.getSearchType());
+        List<String> members = new ArrayList<>();
+        members.add("\"pit\": " + objectMapper.createObjectNode()
+                .put("id", position.getPitId())
+                .put("keep_alive", pitKeepAlive));
+        if (!sliced) {
+            members.add("\"sort\": [ { \"_score\": \"desc\" }, { \"_doc\": \"asc\" } ]");
+            if (position.getSearchAfter() != null) {
+                members.add("\"search_after\": " + position.getSearchAfter());
+            }
+        }
+        Paging paging = new Paging(sliced ? null : position.getSize(), String.join(",\n", members));
+
+        JsonNode response = executeRequest("POST", getSearchEndpoint(position.getSearchType(), resolvedOptions, true),
+                buildQuery(position.getQuery(), position.getSearchType(), resolvedOptions, depth, false, paging));
+        String pitId = response.path("pit_id").asText(position.getPitId());
+
+        List<DocumentBean> documents;
+        JsonNode searchAfter = null;
+        if (sliced) {
+            // Collapsed results are grouped by document from the segment hits, up to the requested page
+            List<DocumentBean> results = processSearchResults(response, position.getQuery(), resolvedOptions, false, depth);
+            int from = Math.min(position.getPage() * position.getSize(), results.size());
+            documents = new ArrayList<>(results.subList(from, results.size()));
+        } else {
+            documents = processSearchResults(response, position.getQuery(), resolvedOptions, false, position.getSize());
+            JsonNode hits = response.path("hits").path("hits");
+            if (!hits.isEmpty()) {
+                searchAfter = hits.get(hits.size() - 1).path("sort");
+            }
+        }
+
+        if (documents.size() < position.getSize() || depth >= MAX_DEPTH) {
+            closePointInTime(pitId);
+            return new SearchPage(documents, null);
+        }
+        SearchCursor next = new SearchCursor(position.getQuery(), position.getSearchType(), position.getSize(),
+                position.getPage() + 1, pitId, searchAfter, optionsHash);
+        return new SearchPage(documents, next.encode());
+    }
+
+    /**
+     * Opens a point in time on the index.
+     *
+     * @return the point in time id
+     * @throws IOException if an I/O error occurs
+     */
+    private String openPointInTime() throws IOException {
+        JsonNode response = executeRequest("POST", "/" + openSearchIndex + "/_search/point_in_time?keep_alive="
+                + URLEncoder.encode(pitKeepAlive, StandardCharsets.UTF_8), null);
+        return response.path("pit_id").asText();
+    }
+
+    /**
+     * Closes a point in time once the last page has been read. Failures are only logged,
+     * as the point in time expires anyway after its keep alive.
+     *
+     * @param pitId the point in time id
+     */
+    private void closePointInTime(String pitId) {
+        try {
+            executeRequest("DELETE", "/_search/point_in_time",
+                    "{ \"pit_id\": %s }".formatted(JsonUtils.toJsonArray(List.of(pitId))));
+        } catch (IOException e) {
+            LOG.warn("Unable to close point in time: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the search endpoint for the given search type. Hybrid queries reference the configured search pipeline
+     * normalizing keyword and neural scores, unless the request defines its own normalization settings.
+     *
+     * @param searchType  the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @param options     the resolved search options
+     * @param pointInTime whether the request searches a point in time, which already targets the index
+     * @return the search endpoint
+     */
+    private String getSearchEndpoint(String searchType, SearchOptions options, boolean pointInTime) {
+        String endpoint = pointInTime ? "/_search" : "/" + openSearchIndex + "/_search";
+        if (isHybrid(searchType) && !options.getHybrid().isCustomized()) {
+            endpoint += "?search_pipeline=" + URLEncoder.encode(searchPipelineName, StandardCharsets.UTF_8);
+        }
+        return endpoint;
     }
 
     /**
@@ -77,137 +538,734 @@ public class Search {
 
     /**
      * Processes the search results and converts them to document beans.
+     * When results are collapsed by OpenSearch, every hit is a document carrying its top passages as inner hits.
+     * Otherwise, collapsed results are grouped by document here, from segment hits sorted by score.
      *
-     * @param response the search response
+     * @param response              the search response
+     * @param query                 the search query, used to select snippets
+     * @param options               the resolved search options
+     * @param collapsedByOpenSearch whether the query used OpenSearch "collapse"
+     * @param size                  the maximum number of documents grouped here
      * @return a list of document beans
      */
-    private List<DocumentBean> processSearchResults(JsonNode response) {
+    private List<DocumentBean> processSearchResults(JsonNode response, String query, SearchOptions options,
+                                                    boolean collapsedByOpenSearch, int size) {
         List<DocumentBean> results = new ArrayList<>();
         JsonNode hits = response.path("hits").path("hits");
 
-        for (JsonNode hit : hits) {
-            JsonNode source = hit.path("_source");
-            String id = source.path("id").asText();
-            // Remove segment suffix if present (documentId_0 -> documentId)
-            id = id.contains("_") ? id.substring(0, id.lastIndexOf("_")) : id;
-            String name = source.path("name").asText();
-            String text = source.path("text").asText();
-            String nodeRef = source.has("nodeRef") ? source.path("nodeRef").asText() : "";
-
-            results.add(DocumentBean.builder()
-                .uuid(id)
+        if (!options.getCollapse()) {
+            for (JsonNode hit : hits) {
+                results.add(toDocumentBean(hit, null, query, options));
+            }
+        } else if (collapsedByOpenSearch) {
+            for (JsonNode hit : hits) {
+                results.add(toDocumentBean(hit, getPassageHits(hit), query, options));
+            }
+        } else {
+            Map<String, List<JsonNode>> hitsByDocument = new LinkedHashMap<>();
+            for (JsonNode hit : hits) {
+                hitsByDocument.computeIfAbsent(getDocumentId(hit), id -> new ArrayList<>()).add(hit);
+            }
+            hitsByDocument.values().stream()
+                    .limit(size)
+                    .forEach(documentHits -> results.add(toDocumentBean(documentHits.get(0),
+                            documentHits.subList(0, Math.min(options.getPassages(), documentHits.size())), query,
+                            options)));
+        }
+
+        if (options.getCollapse() && options.getScoring() == DocumentScoring.SUM) {
+            results.sort(Comparator.comparing(DocumentBean::getScore).reversed());
+        }
+
+        return results;
+    }
+
+    /**
+     * Gets the top passages of a document collapsed by OpenSearch, returned as inner hits.
+     *
+     * @param hit the best hit of the collapsed document
+     * @return the passage hits, empty when inner hits were not requested
+     */
+    private static List<JsonNode> getPassageHits(JsonNode hit) {
+        List<JsonNode> passageHits = new ArrayList<>();
+        hit.path("inner_hits").path(PASSAGES).path("hits").path("hits").forEach(passageHits::add);
+        return passageHits;
+    }
+
+    /**
+     * Converts a hit to a document bean. With snippets, the segment text is replaced by its snippet,
+     * and passages hold the snippets of the top segments.
+     *
+     * @param hit         the search hit, or the best hit of a collapsed document
+     * @param passageHits the top passages of a collapsed document, or null when results are not collapsed
+     * @param query       the search query, used to select snippets
+     * @param options     the resolved search options
+     * @return the document bean
+     */
+    private DocumentBean toDocumentBean(JsonNode hit, List<JsonNode> passageHits, String query, SearchOptions options) {
+        JsonNode source = hit.path("_source");
+        String name = source.path("name").asText();
+        String nodeRef = source.has("nodeRef") ? source.path("nodeRef").asText() : "";
+        double score = hit.path("_score").asDouble();
+
+        List<String> passages = null;
+        if (passageHits != null) {
+            passages = new ArrayList<>();
+            double passagesScore = 0;
+            for (JsonNode passageHit : passageHits) {
+                passages.add(options.isSnippets()
+                        ? getSnippet(passageHit, query).getText()
+                        : passageHit.path("_source").path("text").asText());
+                passagesScore += passageHit.path("_score").asDouble();
+            }
+            if (options.getScoring() == DocumentScoring.SUM && !passageHits.isEmpty()) {
+                score = passagesScore;
+            }
+        }
+
+        return DocumentBean.builder()
+                .uuid(getDocumentId(hit))
                 .name(name)
-                .text(text)
+                .text(options.isSnippets() ? null : source.path("text").asText())
+                .snippet(options.isSnippets() ? getSnippet(hit, query) : null)
                 .nodeRef(nodeRef)
-                .build());
+                .score(score)
+                .passages(passages)
+                .build();
+    }
+
+    /**
+     * Gets the id of the document a hit belongs to, from the collapse field when available.
+     *
+     * @param hit the search hit
+     * @return the document id, without segment suffix
+     */
+    public static String getDocumentId(JsonNode hit) {
+        JsonNode collapseValue = hit.path("fields").path(Index.PARENT_FIELD).path(0);
+        if (!collapseValue.isMissingNode()) {
+            return collapseValue.asText();
+        }
+        JsonNode source = hit.path("_source");
+        if (source.has(Index.PARENT_FIELD)) {
+            return source.path(Index.PARENT_FIELD).asText();
         }
+        return Indexer.getParentId(source.path("id").asText());
+    }
 
-        return results;
+    /**
+     * Gets the snippet of a hit: the highlight fragment of keyword and hybrid searches when the segment holds
+     * query terms, the sentence window sharing the most terms with the query otherwise, as for neural searches.
+     *
+     * @param hit   the search hit
+     * @param query the search query
+     * @return the snippet of the segment text
+     */
+    private Snippet getSnippet(JsonNode hit, String query) {
+        String text = hit.path("_source").path("text").asText();
+        JsonNode fragment = hit.path("highlight").path("text").path(0);
+        return fragment.isTextual()
+                ? Snippets.fromHighlight(text, fragment.asText(), snippetSize)
+                : Snippets.bestWindow(text, query, snippetSize);
+    }
+
+    /**
+     * Fills the options left unset by the caller with the configured defaults, and checks them.
+     *
+     * @param options the search options requested
+     * @return the search options with every value set
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    private SearchOptions resolve(SearchOptions options) {
+        return resolve(options, null);
+    }
+
+    /**
+     * Fills the options left unset by the caller with the configured defaults, and checks them.
+     * Filters must target fields indexed as keyword, date or numeric values, such as the metadata fields.
+     * Results are restricted to segments readable by one of the given authorities.
+     *
+     * @param options     the search options requested
+     * @param authorities the authorities of the caller, or null for searches not filtered by permissions
+     * @return the search options with every value set
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    private SearchOptions resolve(SearchOptions options, List<String> authorities) {
+        int size = options.getSize() != null ? options.getSize() : defaultSize;
+        if (size < 1 || size > MAX_DEPTH) {
+            throw new IllegalArgumentException("Size must be between 1 and %d".formatted(MAX_DEPTH));
+        }
+        KnnOptions knn = options.getKnn() != null ? options.getKnn() : KnnOptions.defaults();
+        knn.validate();
+        if (knn.getEfSearch() != null) {
+            // The ef_search query parameter is rejected by the query parser of earlier versions
+            clusterVersion.require(2, 16, "efSearch");
+        }
+        List<SearchFilter> filters = new ArrayList<>();
+        if (options.getFilters() != null) {
+            for (SearchFilter filter : options.getFilters()) {
+                filter.validate();
+                if (!metadataMapping.isFilterable(filter.getField())) {
+                    throw new IllegalArgumentException("Field %s cannot be filtered on, metadata fields are %s"
+                            .formatted(filter.getField(), metadataMapping.getFieldNames()));
+                }
+            }
+            filters.addAll(options.getFilters());
+        }
+        if (authorities != null) {
+            filters.add(SearchFilter.terms(Index.READERS_FIELD, authorities));
+        }
+        return SearchOptions.builder()
+                .fields(options.getFields())
+                .snippets(options.isSnippets())
+                .collapse(options.getCollapse() != null ? options.getCollapse() : collapseByDefault)
+                .scoring(options.getScoring() != null ? options.getScoring() : DocumentScoring.fromName(defaultScoring))
+                .passages(options.getPassages() != null ? options.getPassages() : defaultPassages)
+                .hybrid(resolve(options.getHybrid()))
+                .cached(options.isCached())
+                .size(size)
+                .knn(knn)
+                .filters(filters)
+                .build();
+    }
+
+    /**
+     * Fills the hybrid settings left unset by the caller with the configured defaults,
+     * keeping track of whether the configured search pipeline can be used as is.
+     *
+     * @param hybrid the hybrid options requested, may be null
+     * @return the hybrid options with every value set
+     */
+    private HybridOptions resolve(HybridOptions hybrid) {
+        if (hybrid == null || !hybrid.isCustomized()) {
+            return new HybridOptions(null, null, null);
+        }
+        return new HybridOptions(
+                hybrid.getWeights() != null ? hybrid.getWeights() : defaultWeights,
+                hybrid.getNormalization() != null ? hybrid.getNormalization() : defaultNormalization,
+                hybrid.getCombination() != null ? hybrid.getCombination() : defaultCombination);
+    }
+
+    /**
+     * Checks whether the search type runs a pure neural query, which is the default search type.
+     *
+     * @param searchType the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @return true for neural searches
+     */
+    private static boolean isNeural(String searchType) {
+        String type = searchType.toLowerCase();
+        return !KEYWORD.equals(type) && !HYBRID.equals(type) && !HYBRID_BOOL.equals(type) && !SPARSE.equals(type);
+    }
+
+    /**
+     * Checks whether the search type needs the query embedding: keyword and sparse queries do not.
+     *
+     * @param searchType the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @return true for searches with a dense vector query
+     */
+    private static boolean usesEmbedding(String searchType) {
+        String type = searchType.toLowerCase();
+        return !KEYWORD.equals(type) && !SPARSE.equals(type);
+    }
+
+    /**
+     * Checks whether the search type runs an OpenSearch "hybrid" query, which does not support "collapse".
+     *
+     * @param searchType the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @return true for hybrid searches
+     */
+    private static boolean isHybrid(String searchType) {
+        return HYBRID.equals(searchType.toLowerCase());
+    }
+
+    /**
+     * Builds the search query for the given search type.
+     *
+     * @param query      the search query
+     * @param searchType the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @param options    the resolved search options
+     * @param size       the number of results, documents when collapsed
+     * @param collapse   whether OpenSearch collapses the results by document; when false, collapsed results
+     *                   are grouped by document from over-fetched segment hits
+     * @param paging     the members of a paginated search request, or null
+     * @return the search query as a JSON string
+     */
+    private String buildQuery(String query, String searchType, SearchOptions options, int size, boolean collapse,
+                              Paging paging) {
+        float[] embedding = usesEmbedding(searchType) ? queryEmbeddings.getEmbedding(query) : null;
+        return buildQuery(query, embedding, searchType, options, size, collapse, paging);
+    }
+
+    /**
+     * Builds the search query for the given search type, with a query embedding already computed.
+     *
+     * @param query      the search query
+     * @param embedding  the query embedding, or null to let OpenSearch embed the query text
+     * @param searchType the type of search (neural, keyword, hybrid, hybrid-bool, sparse)
+     * @param options    the resolved search options
+     * @param size       the number of results, documents when collapsed
+     * @param collapse   whether OpenSearch collapses the results by document
+     * @param paging     the members of a paginated search request, or null
+     * @return the search query as a JSON string
+     */
+    private String buildQuery(String query, float[] embedding, String searchType, SearchOptions options, int size,
+                              boolean collapse, Paging paging) {
+        return switch (searchType.toLowerCase()) {
+            case KEYWORD -> buildKeywordQuery(query, options, size, collapse, paging);
+            case HYBRID -> buildHybridQuery(query, embedding, options, size, paging);
+            case HYBRID_BOOL -> buildBoolHybridQuery(query, embedding, options, size, collapse, paging);
+            case SPARSE -> buildSparseQuery(query, options, size, collapse, paging);
+            default -> buildNeuralQuery(query, embedding, options, size, collapse, paging);
+        };
+    }
+
+    /**
+     * Members of a paginated search request: the point in time read by every page and, for pages read with
+     * "search_after", the number of hits of the page, the sort and the sort values of the last hit of the
+     * previous page.
+     *
+     * @param size    the number of hits of the page, or null to request every hit up to the page
+     * @param members the JSON members to append to the search request body
+     */
+    private record Paging(Integer size, String members) {
+    }
+
+    /**
+     * Gets the number of hits requested from OpenSearch. Results grouped by document here need every
+     * over-fetched segment, while results collapsed by OpenSearch or not collapsed need the requested size.
+     * Pages read with "search_after" only need the hits of the page.
+     *
+     * @param size     the number of results, documents when collapsed
+     * @param options  the resolved search options
+     * @param collapse whether OpenSearch collapses the results by document
+     * @param paging   the members of a paginated search request, or null
+     * @return the value of "size" for the search request
+     */
+    private int getHitsSize(int size, SearchOptions options, boolean collapse, Paging paging) {
+        if (paging != null && paging.size() != null) {
+            return paging.size();
+        }
+        return options.getCollapse() && !collapse ? getK(size, options) : size;
+    }
+
+    /**
+     * Builds the "_source" filter of a search query or of its inner hits.
+     * The embedding and sparse vectors are never returned, and the segment text is always fetched with snippets,
+     * which are located in the text.
+     *
+     * @param options the resolved search options
+     * @return the "_source" JSON member
+     */
+    private String buildSourceFilter(SearchOptions options) {
+        List<String> excludes = List.of(Index.EMBEDDING_FIELD, Index.SPARSE_FIELD);
+        if (options.getFields() == null) {
+            return """
+                  "_source": { "excludes": %s }""".formatted(JsonUtils.toJsonArray(excludes));
+        }
+        List<String> includes = new ArrayList<>(options.getFields());
+        if (options.isSnippets() && !includes.contains("text")) {
+            includes.add("text");
+        }
+        return """
+                  "_source": { "includes": %s, "excludes": %s }""".formatted(
+                JsonUtils.toJsonArray(includes), JsonUtils.toJsonArray(excludes));
+    }
+
+    /**
+     * Builds the "highlight" section of a search query or of its inner hits, with the unified highlighter
+     * reading term offsets from the postings. Highlighted terms are tagged with control characters, so that
+     * the fragment and its terms are located in the segment text. Hits without any query term get no fragment,
+     * their snippet is selected from the segment text.
+     *
+     * @param query the search query, used to highlight matching terms
+     * @return the "highlight" JSON member
+     */
+    private String buildHighlight(String query) {
+        return """
+                  "highlight": {
+                    "fields": {
+                      "text": {
+                        "type": "unified",
+                        "highlight_query": {
+                          "match": {
+                            "text": {
+                              "query": "%s"
+                            }
+                          }
+                        },
+                        "boundary_scanner": "sentence",
+                        "fragment_size": %d,
+                        "number_of_fragments": 1,
+                        "pre_tags": ["\\u0002"],
+                        "post_tags": ["\\u0003"]
+                      }
+                    }
+                  }""".formatted(JsonUtils.escape(query), snippetSize);
+    }
+
+    /**
+     * Builds the "collapse" section grouping segments by document, with the top passages of every document
+     * retrieved as inner hits. Inner hits are skipped when the best segment alone is enough.
+     *
+     * @param query     the search query
+     * @param options   the resolved search options
+     * @param highlight whether segments are highlighted
+     * @return the "collapse" JSON member
+     */
+    private String buildCollapse(String query, SearchOptions options, boolean highlight) {
+        if (options.getPassages() <= 1 && options.getScoring() == DocumentScoring.MAX) {
+            return """
+                  "collapse": { "field": "%s" }""".formatted(Index.PARENT_FIELD);
+        }
+        String innerHitsSections = buildSourceFilter(options) + (highlight ? ",\n" + buildHighlight(query) : "");
+        return """
+                  "collapse": {
+                    "field": "%s",
+                    "inner_hits": {
+                      "name": "%s",
+                      "size": %d,
+                %s
+                    }
+                  }""".formatted(Index.PARENT_FIELD, PASSAGES, options.getPassages(), innerHitsSections);
+    }
+
+    /**
+     * Builds the response sections of a search query: source filter, highlighting and document collapsing,
+     * followed by the members of a paginated search request. Collapsed neural queries also count the distinct
+     * documents among the kNN candidates to tune over-fetching.
+     *
+     * @param query    the search query
+     * @param options  the resolved search options
+     * @param neural   whether the query is a pure neural query
+     * @param collapse whether OpenSearch collapses the results by document
+     * @param paging   the members of a paginated search request, or null
+     * @return the JSON members to append to the search request body
+     */
+    private String buildResponseSections(String query, SearchOptions options, boolean neural, boolean collapse,
+                                         Paging paging) {
+        StringBuilder sections = new StringBuilder(buildSourceFilter(options));
+        // Snippets of neural hits are selected from the segment text, sparing the highlighter
+        boolean highlight = options.isSnippets() && !neural;
+        if (highlight) {
+            sections.append(",\n").append(buildHighlight(query));
+        }
+        if (collapse) {
+            sections.append(",\n").append(buildCollapse(query, options, highlight));
+            if (neural) {
+                sections.append(",\n").append("""
+                  "aggs": { "documents": { "cardinality": { "field": "%s" } } }""".formatted(Index.PARENT_FIELD));
+            }
+        }
+        if (paging != null) {
+            sections.append(",\n").append(paging.members());
+        }
+        return sections.toString();
+    }
+
+    /**
+     * Gets the number of kNN candidates for a neural query returning the given number of results, unless set
+     * by the caller. Collapsed queries over-fetch segments so that the page still holds the requested number
+     * of documents.
+     *
+     * @param size    the number of results
+     * @param options the resolved search options
+     * @return the value of k for the neural query
+     */
+    private int getK(int size, SearchOptions options) {
+        if (options.getKnn().getK() != null) {
+            return options.getKnn().getK();
+        }
+        return options.getCollapse() ? overFetchEstimator.candidates(size) : size;
+    }
+
+    /**
+     * Builds the vector part of a query. When the query embedding is available, from the cache or from the
+     * embedding provider, a "knn" query with the raw vector is used, so that OpenSearch does not run the model again.
+     * Otherwise, a "neural" query lets OpenSearch embed the query text.
+     * <p>
+     * Neighbours are limited by number, or by score or distance for a radial search. Filters are applied
+     * inside the query, so that the nearest neighbours are searched among matching segments only.
+     * When the index holds quantized vectors, "knn" queries limited by number are run in two phases:
+     * oversampled candidates are searched on quantized vectors, then rescored with full-precision vectors.
+     *
+     * @param query     the search query
+     * @param embedding the query embedding, or null when it is not available
+     * @param k         the number of nearest neighbours, unless the search is radial
+     * @param options   the resolved search options
+     * @return the vector query as a JSON string
+     */
+    private String buildVectorQuery(String query, float[] embedding, int k, SearchOptions options) {
+        KnnOptions knn = options.getKnn();
+        KnnIndexProfile profile = index.getKnnProfile();
+        boolean radial = knn.getMinScore() != null || knn.getMaxDistance() != null;
+        String vector = embedding == null ? null : JsonUtils.toJsonArray(embedding);
+        boolean rescore = profile.isQuantized() && vector != null && !radial;
+        List<String> parameters = new ArrayList<>();
+        parameters.add(vector == null
+                ? "\"query_text\": \"%s\"".formatted(JsonUtils.escape(query))
+                : "\"vector\": %s".formatted(vector));
+        if (knn.getMinScore() != null) {
+            parameters.add("\"min_score\": %s".formatted(knn.getMinScore()));
+        } else if (knn.getMaxDistance() != null) {
+            parameters.add("\"max_distance\": %s".formatted(knn.getMaxDistance()));
+        } else {
+            parameters.add("\"k\": %d".formatted(rescore ? profile.getCandidates(k) : k));
+        }
+        // The configured ef_search is an index setting of native engines, and the default query parameter of
+        // the lucene engine for searches limited by number
+        Integer efSearch = knn.getEfSearch();
+        if (efSearch == null && !profile.isNative() && !radial) {
+            efSearch = profile.getEfSearch();
+        }
+        if (efSearch != null) {
+            parameters.add("\"method_parameters\": { \"ef_search\": %d }".formatted(efSearch));
+        }
+        String filters = buildFilters(options);
+        if (filters != null) {
+            parameters.add("\"filter\": { \"bool\": { \"filter\": %s } }".formatted(filters));
+        }
+        String vectorQuery = """
+                {
+                  "%s": {
+                    "passage_embedding": {
+                      %s
+                    }
+                  }
+                }""".formatted(vector == null ? "neural" : "knn", String.join(",\n", parameters));
+        return rescore ? profile.buildRescoredQuery(vectorQuery, vector) : vectorQuery;
+    }
+
+    /**
+     * Builds the keyword part of a query, matching the segment text, with the filters of the request.
+     *
+     * @param query   the search query
+     * @param options the resolved search options
+     * @return the keyword query as a JSON string
+     */
+    private String buildMatchQuery(String query, SearchOptions options) {
+        String match = """
+                {
+                  "match": {
+                    "text": {
+                      "query": "%s"
+                    }
+                  }
+                }""".formatted(JsonUtils.escape(query));
+        String filters = buildFilters(options);
+        if (filters == null) {
+            return match;
+        }
+        return """
+                {
+                  "bool": {
+                    "must": %s,
+                    "filter": %s
+                  }
+                }""".formatted(match, filters);
+    }
+
+    /**
+     * Builds the filter clauses of a query: a "terms" query for filters on values, a "range" query otherwise.
+     *
+     * @param options the resolved search options
+     * @return the JSON array of filter clauses, or null when results are not filtered
+     */
+    private String buildFilters(SearchOptions options) {
+        if (options.getFilters() == null) {
+            return null;
+        }
+        List<String> clauses = new ArrayList<>();
+        for (SearchFilter filter : options.getFilters()) {
+            String field = JsonUtils.escape(filter.getField());
+            if (filter.getGte() == null && filter.getLte() == null) {
+                clauses.add("""
+                        { "terms": { "%s": %s } }""".formatted(field, JsonUtils.toJsonArray(filter.getValues())));
+            } else {
+                List<String> bounds = new ArrayList<>();
+                if (filter.getGte() != null) {
+                    bounds.add("\"gte\": \"%s\"".formatted(JsonUtils.escape(filter.getGte())));
+                }
+                if (filter.getLte() != null) {
+                    bounds.add("\"lte\": \"%s\"".formatted(JsonUtils.escape(filter.getLte())));
+                }
+                clauses.add("""
+                        { "range": { "%s": { %s } } }""".formatted(field, String.join(", ", bounds)));
+            }
+        }
+        return "[ " + String.join(", ", clauses) + " ]";
     }
 
     /**
      * Builds a neural search query.
      *
-     * @param query the search query
+     * @param query     the search query
+     * @param embedding the query embedding, or null when it is not available
+     * @param options   the resolved search options
+     * @param size      the number of results
+     * @param collapse  whether OpenSearch collapses the results by document
+     * @param paging    the members of a paginated search request, or null
      * @return the neural search query as a JSON string
      */
-    private String buildNeuralQuery(String query) {
+    private String buildNeuralQuery(String query, float[] embedding, SearchOptions options, int size, boolean collapse,
+                                    Paging paging) {
         return """
             {
-              "query": {
-                "neural": {
-                  "passage_embedding": {
-                    "query_text": "%s",
-                    "k": 20
-                  }
-                }
-              },
-              "size": 20
+              "query": %s,
+              "size": %d,
+            %s
             }
-            """.formatted(JsonUtils.escape(query));
+            """.formatted(buildVectorQuery(query, embedding, getK(size, options), options),
+                    getHitsSize(size, options, collapse, paging),
+                    buildResponseSections(query, options, true, collapse, paging));
     }
 
     /**
      * Builds a keyword search query.
      *
-     * @param query the search query
+     * @param query    the search query
+     * @param options  the resolved search options
+     * @param size     the number of results
+     * @param collapse whether OpenSearch collapses the results by document
+     * @param paging   the members of a paginated search request, or null
      * @return the keyword search query as a JSON string
      */
-    private String buildKeywordQuery(String query) {
+    private String buildKeywordQuery(String query, SearchOptions options, int size, boolean collapse, Paging paging) {
         return """
             {
-              "query": {
-                "match": {
-                  "text": {
-                    "query": "%s"
+              "query": %s,
+              "size": %d,
+            %s
+            }
+            """.formatted(buildMatchQuery(query, options), getHitsSize(size, options, collapse, paging),
+                    buildResponseSections(query, options, false, collapse, paging));
+    }
+
+    /**
+     * Builds a neural sparse search query, matching the tokens of the query against the sparse vectors of segments
+     * in the inverted index, with the filters of the request. No model inference runs for the query.
+     *
+     * @param query    the search query
+     * @param options  the resolved search options
+     * @param size     the number of results
+     * @param collapse whether OpenSearch collapses the results by document
+     * @param paging   the members of a paginated search request, or null
+     * @return the sparse search query as a JSON string
+     */
+    private String buildSparseQuery(String query, SearchOptions options, int size, boolean collapse, Paging paging) {
+        String sparseQuery = sparseEncoding.buildQuery(query);
+        String filters = buildFilters(options);
+        if (filters != null) {
+            sparseQuery = """
+                {
+                  "bool": {
+                    "must": %s,
+                    "filter": %s
                   }
+                }""".formatted(sparseQuery, filters);
+        }
+        return """
+            {
+              "query": %s,
+              "size": %d,
+            %s
+            }
+            """.formatted(sparseQuery, getHitsSize(size, options, collapse, paging),
+                    buildResponseSections(query, options, false, collapse, paging));
+    }
+
+    /**
+     * Builds a hybrid search query. Keyword and neural scores are normalized and combined by the search pipeline,
+     * either the configured one or a temporary pipeline defined in the request when hybrid options are set.
+     * As "collapse" is not supported by hybrid queries, collapsed results are grouped by document from
+     * over-fetched segment hits.
+     *
+     * @param query     the search query
+     * @param embedding the query embedding, or null when it is not available
+     * @param options   the resolved search options
+     * @param size      the number of results
+     * @param paging    the members of a paginated search request, or null
+     * @return the hybrid search query as a JSON string
+     */
+    private String buildHybridQuery(String query, float[] embedding, SearchOptions options, int size, Paging paging) {
+        int k = getK(size, options);
+        HybridOptions hybrid = options.getHybrid();
+        String searchPipeline = hybrid.isCustomized()
+                ? """
+                  "search_pipeline": {
+                    "phase_results_processors": [
+                %s
+                    ]
+                  },
+                """.formatted(Pipeline.buildNormalizationProcessor(hybrid.getNormalization(), hybrid.getCombination(),
+                        hybrid.getWeights()))
+                : "";
+        return """
+            {
+            %s
+              "query": {
+                "hybrid": {
+                  "queries": [
+                    %s,
+                    %s
+                  ]
                 }
               },
-              "size": 20
+              "size": %d,
+            %s
             }
-            """.formatted(JsonUtils.escape(query));
+            """.formatted(searchPipeline, buildMatchQuery(query, options), buildVectorQuery(query, embedding, k, options),
+                    getHitsSize(size, options, false, paging),
+                    buildResponseSections(query, options, false, false, paging));
     }
 
     /**
-     * Builds a hybrid search query.
+     * Builds a legacy hybrid search query, adding raw BM25 and kNN scores in a "bool" query without normalization.
+     * Kept to benchmark the normalized "hybrid" query against it.
      *
-     * @param query the search query
-     * @return the hybrid search query as a JSON string
+     * @param query     the search query
+     * @param embedding the query embedding, or null when it is not available
+     * @param options   the resolved search options
+     * @param size      the number of results
+     * @param collapse  whether OpenSearch collapses the results by document
+     * @param paging    the members of a paginated search request, or null
+     * @return the "bool" hybrid search query as a JSON string
      */
-    private String buildHybridQuery(String query) {
+    private String buildBoolHybridQuery(String query, float[] embedding, SearchOptions options, int size,
+                                        boolean collapse, Paging paging) {
         return """
             {
               "query": {
                 "bool": {
                   "should": [
-                    {
-                      "neural": {
-                        "passage_embedding": {
-                          "query_text": "%s",
-                          "k": 10
-                        }
-                      }
-                    },
-                    {
-                      "match": {
-                        "text": {
-                          "query": "%s"
-                        }
-                      }
-                    }
+                    %s,
+                    %s
                   ]
                 }
               },
-              "size": 20
+              "size": %d,
+            %s
             }
-            """.formatted(JsonUtils.escape(query), JsonUtils.escape(query));
+            """.formatted(buildVectorQuery(query, embedding, getK(HYBRID_K, options), options), buildMatchQuery(query, options),
+                    getHitsSize(size, options, collapse, paging),
+                    buildResponseSections(query, options, false, collapse, paging));
     }
 
     /**
-     * Performs a search with ACL filtering.
-     * This is a placeholder implementation that will be expanded later.
+     * Performs a search with ACL filtering, restricting results to segments readable by one of the authorities
+     * of the user. Results are cached per authority set of the user, so that users sharing the same authorities
+     * share entries.
      *
      * @param query the search query
      * @param searchType the type of search (neural, keyword, hybrid)
      * @param username the username of the current user
      * @return the search results as a JsonNode
-     * @throws IOException if an I/O error occurs
+     * @throws Exception if an error occurs during the search
      */
-    public JsonNode searchWithAcl(String query, String searchType, String username) throws IOException {
-        // For now, just use the regular search query
-        String searchQuery;
-        switch (searchType.toLowerCase()) {
-            case "keyword":
-                searchQuery = buildKeywordQuery(query);
-                break;
-            case "hybrid":
-                searchQuery = buildHybridQuery(query);
-                break;
-            default:
-                searchQuery = buildNeuralQuery(query);
-                break;
-        }
-
-        return executeRequest("POST", "/" + openSearchIndex + "/_search", searchQuery);
+    public JsonNode searchWithAcl(String query, String searchType, String username) throws Exception {
+        List<String> authorities = getAuthorities(username);
+        SearchOptions options = resolve(SearchOptions.defaults(), authorities);
+        return searchResultCache.get(SearchResultCache.getKey("hits", query, searchType, options, authorities),
+                () -> executeRequest("POST", getSearchEndpoint(searchType, options, false),
+                        buildQuery(query, searchType, options, options.getSize(),
+                                options.getCollapse() && !isHybrid(searchType), null)));
     }
 }
\ No newline at end of file
@@ -0,0 +1,221 @@
+package org.alfresco.opensearch.search;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Position of a paginated search, returned to clients as an opaque string.
+ * Holds the point in time the pages are read from, so that every page comes from the same index snapshot,
+ * and the sort values of the last hit returned when pages are fetched with "search_after".
+ * The cursor is bound to the search options of the first page by their hash, so that every page is searched
+ * with the same filters, collapsing and scoring.
+ */
+public class SearchCursor {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private String query;
+    private String searchType;
+    private int size;
+    private int page;
+    private String pitId;
+    private JsonNode searchAfter;
+    private String optionsHash;
+
+    public SearchCursor() {
+    }
+
+    public SearchCursor(String query, String searchType, int size, int page, String pitId, JsonNode searchAfter,
+                        String optionsHash) {
+        this.query = query;
+        this.searchType = searchType;
+        this.size = size;
+        this.page = page;
+        this.pitId = pitId;
+        this.searchAfter = searchAfter;
+        this.optionsHash = optionsHash;
+    }
+
+    /**
+     * Encodes the cursor as an opaque URL-safe string.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(OBJECT_MAPPER.writeValueAsBytes(this));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode search cursor", e);
+        }
+    }
+
+    /**
+     * Decodes a cursor returned by a previous page.
+     *
+     * @param cursor the encoded cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static SearchCursor decode(String cursor) {
+        try {
+            SearchCursor decoded = OBJECT_MAPPER.readValue(
+                    new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8), SearchCursor.class);
+            if (decoded.getPitId() == null || decoded.getQuery() == null || decoded.getSearchType() == null
+                    || decoded.getOptionsHash() == null || decoded.getSize() <= 0 || decoded.getPage() < 0) {
+                throw new IllegalArgumentException("Invalid search cursor");
+            }
+            return decoded;
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid search cursor", e);
+        }
+    }
+
+    /**
+     * Hashes the search options of a paginated search.
+     *
+     * @param options the resolved search options
+     * @return the SHA-256 hash of the options
+     */
+    public static String hash(SearchOptions options) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(options.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Gets the search query.
+     *
+     * @return the search query
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Sets the search query.
+     *
+     * @param query the search query
+     */
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    /**
+     * Gets the type of search.
+     *
+     * @return the search type
+     */
+    public String getSearchType() {
+        return searchType;
+    }
+
+    /**
+     * Sets the type of search.
+     *
+     * @param searchType the search type
+     */
+    public void setSearchType(String searchType) {
+        this.searchType = searchType;
+    }
+
+    /**
+     * Gets the number of results per page.
+     *
+     * @return the page size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the number of results per page.
+     *
+     * @param size the page size
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Gets the zero-based number of the page this cursor points to.
+     *
+     * @return the page number
+     */
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * Sets the zero-based number of the page this cursor points to.
+     *
+     * @param page the page number
+     */
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    /**
+     * Gets the id of the point in time the pages are read from.
+     *
+     * @return the point in time id
+     */
+    public String getPitId() {
+        return pitId;
+    }
+
+    /**
+     * Sets the id of the point in time the pages are read from.
+     *
+     * @param pitId the point in time id
+     */
+    public void setPitId(String pitId) {
+        this.pitId = pitId;
+    }
+
+    /**
+     * Gets the sort values of the last hit of the previous page, or null when pages are sliced from
+     * over-fetched results.
+     *
+     * @return the "search_after" values
+     */
+    public JsonNode getSearchAfter() {
+        return searchAfter;
+    }
+
+    /**
+     * Sets the sort values of the last hit of the previous page.
+     *
+     * @param searchAfter the "search_after" values
+     */
+    public void setSearchAfter(JsonNode searchAfter) {
+        this.searchAfter = searchAfter;
+    }
+
+    /**
+     * Gets the hash of the search options of the first page.
+     *
+     * @return the options hash
+     */
+    public String getOptionsHash() {
+        return optionsHash;
+    }
+
+    /**
+     * Sets the hash of the search options of the first page.
+     *
+     * @param optionsHash the options hash
+     */
+    public void setOptionsHash(String optionsHash) {
+        this.optionsHash = optionsHash;
+    }
+}
@@ -0,0 +1,105 @@
+package org.alfresco.opensearch.search;
+
+import java.util.List;
+
+/**
+ * Filter restricting search results on an indexed field, either to a set of values or to a range.
+ * Filters are applied inside the kNN query, so that the nearest neighbours are searched among matching segments only.
+ */
+public class SearchFilter {
+    private String field;
+    private List<String> values;
+    private String gte;
+    private String lte;
+
+    public SearchFilter() {
+    }
+
+    public SearchFilter(String field, List<String> values, String gte, String lte) {
+        this.field = field;
+        this.values = values;
+        this.gte = gte;
+        this.lte = lte;
+    }
+
+    /**
+     * Creates a filter matching any of the given values.
+     *
+     * @param field  the indexed field
+     * @param values the accepted values
+     * @return the filter
+     */
+    public static SearchFilter terms(String field, List<String> values) {
+        return new SearchFilter(field, values, null, null);
+    }
+
+    /**
+     * Creates a filter matching a range of values.
+     *
+     * @param field the indexed field
+     * @param gte   the lower bound, inclusive, or null
+     * @param lte   the upper bound, inclusive, or null
+     * @return the filter
+     */
+    public static SearchFilter range(String field, String gte, String lte) {
+        return new SearchFilter(field, null, gte, lte);
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public void setValues(List<String> values) {
+        this.values = values;
+    }
+
+    public String getGte() {
+        return gte;
+    }
+
+    public void setGte(String gte) {
+        this.gte = gte;
+    }
+
+    public String getLte() {
+        return lte;
+    }
+
+    public void setLte(String lte) {
+        this.lte = lte;
+    }
+
+    /**
+     * Checks that the filter targets a field with either values or a range.
+     *
+     * @throws IllegalArgumentException if the filter is incomplete or mixes values and a range
+     */
+    public void validate() {
+        if (field == null || field.isBlank()) {
+            throw new IllegalArgumentException("Filter field is required");
+        }
+        boolean range = gte != null || lte != null;
+        boolean terms = values != null && !values.isEmpty();
+        if (range == terms) {
+            throw new IllegalArgumentException("Filter on " + field + " requires either values or a range");
+        }
+    }
+
+    /**
+     * Describes the filter, used as part of the search result cache key.
+     *
+     * @return the filter as a string
+     */
+    @Override
+    public String toString() {
+        return field + (values != null ? "=" + values : "[" + gte + ".." + lte + "]");
+    }
+}
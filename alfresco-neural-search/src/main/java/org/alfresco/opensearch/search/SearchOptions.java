@@ -0,0 +1,310 @@
+package org.alfresco.opensearch.search;
+
+import java.util.List;
+
+/**
+ * Options controlling which parts of each hit are returned by a search request, how segments are grouped
+ * into documents, how many results are returned and how they are matched.
+ * Unset values fall back to the defaults configured for {@link Search}. Options are created with {@link #builder()},
+ * or derived from other options with {@link #toBuilder()}.
+ */
+public class SearchOptions {
+
+    private final List<String> fields;
+    private final boolean snippets;
+    private final Boolean collapse;
+    private final DocumentScoring scoring;
+    private final Integer passages;
+    private final HybridOptions hybrid;
+    private final boolean cached;
+    private final Integer size;
+    private final KnnOptions knn;
+    private final List<SearchFilter> filters;
+
+    private SearchOptions(Builder builder) {
+        this.fields = builder.fields;
+        this.snippets = builder.snippets;
+        this.collapse = builder.collapse;
+        this.scoring = builder.scoring;
+        this.passages = builder.passages;
+        this.hybrid = builder.hybrid;
+        this.cached = builder.cached;
+        this.size = builder.size;
+        this.knn = builder.knn;
+        this.filters = builder.filters;
+    }
+
+    /**
+     * Default options: every stored field except the embedding vector.
+     *
+     * @return the default search options
+     */
+    public static SearchOptions defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Gets the source fields to return, or null to return all of them.
+     *
+     * @return the list of source fields
+     */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Whether highlighted snippets are returned instead of the full segment text.
+     *
+     * @return true if snippets are requested
+     */
+    public boolean isSnippets() {
+        return snippets;
+    }
+
+    /**
+     * Whether segments are collapsed into one result per document, or null for the configured default.
+     *
+     * @return the collapse flag
+     */
+    public Boolean getCollapse() {
+        return collapse;
+    }
+
+    /**
+     * Gets the strategy scoring a document from its passages, or null for the configured default.
+     *
+     * @return the document scoring strategy
+     */
+    public DocumentScoring getScoring() {
+        return scoring;
+    }
+
+    /**
+     * Gets the number of top passages returned per document, or null for the configured default.
+     *
+     * @return the number of passages per document
+     */
+    public Integer getPassages() {
+        return passages;
+    }
+
+    /**
+     * Gets the score normalization settings of hybrid queries, or null to use the configured search pipeline.
+     *
+     * @return the hybrid options
+     */
+    public HybridOptions getHybrid() {
+        return hybrid;
+    }
+
+    /**
+     * Whether the results may be served from, and stored in, the search result cache.
+     *
+     * @return true if the result cache is used
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Gets the number of results, documents when collapsed, or null for the configured default.
+     *
+     * @return the number of results
+     */
+    public Integer getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the settings of the vector part of the query, or null for the defaults.
+     *
+     * @return the kNN options
+     */
+    public KnnOptions getKnn() {
+        return knn;
+    }
+
+    /**
+     * Gets the filters every result has to match, or null when results are not filtered.
+     *
+     * @return the list of filters
+     */
+    public List<SearchFilter> getFilters() {
+        return filters;
+    }
+
+    /**
+     * Describes the options affecting the results, used as part of the search result cache key.
+     *
+     * @return the options as a string
+     */
+    @Override
+    public String toString() {
+        return "fields=" + fields + ", snippets=" + snippets + ", collapse=" + collapse + ", scoring=" + scoring
+                + ", passages=" + passages + ", hybrid=" + hybrid + ", size=" + size + ", knn=" + knn
+                + ", filters=" + filters;
+    }
+
+    /**
+     * Creates a builder initialized with these options, to derive options differing by some values.
+     *
+     * @return a new builder instance
+     */
+    public Builder toBuilder() {
+        return builder()
+                .fields(fields)
+                .snippets(snippets)
+                .collapse(collapse)
+                .scoring(scoring)
+                .passages(passages)
+                .hybrid(hybrid)
+                .cached(cached)
+                .size(size)
+                .knn(knn)
+                .filters(filters);
+    }
+
+    /**
+     * Creates a new builder for SearchOptions.
+     *
+     * @return a new builder instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder class for SearchOptions.
+     */
+    public static class Builder {
+        private List<String> fields;
+        private boolean snippets;
+        private Boolean collapse;
+        private DocumentScoring scoring;
+        private Integer passages;
+        private HybridOptions hybrid;
+        private boolean cached = true;
+        private Integer size;
+        private KnnOptions knn;
+        private List<SearchFilter> filters;
+
+        /**
+         * Sets the source fields to return.
+         *
+         * @param fields the source fields, null or empty for all of them
+         * @return the builder instance
+         */
+        public Builder fields(List<String> fields) {
+            this.fields = fields == null || fields.isEmpty() ? null : fields;
+            return this;
+        }
+
+        /**
+         * Sets whether highlighted snippets replace the full segment text.
+         *
+         * @param snippets true to return snippets
+         * @return the builder instance
+         */
+        public Builder snippets(boolean snippets) {
+            this.snippets = snippets;
+            return this;
+        }
+
+        /**
+         * Sets whether segments are collapsed into one result per document.
+         *
+         * @param collapse true to collapse by document, null for the configured default
+         * @return the builder instance
+         */
+        public Builder collapse(Boolean collapse) {
+            this.collapse = collapse;
+            return this;
+        }
+
+        /**
+         * Sets the strategy scoring a document from its passages.
+         *
+         * @param scoring the document scoring strategy, null for the configured default
+         * @return the builder instance
+         */
+        public Builder scoring(DocumentScoring scoring) {
+            this.scoring = scoring;
+            return this;
+        }
+
+        /**
+         * Sets the number of top passages returned per document.
+         *
+         * @param passages the number of passages, null for the configured default
+         * @return the builder instance
+         */
+        public Builder passages(Integer passages) {
+            this.passages = passages;
+            return this;
+        }
+
+        /**
+         * Sets the score normalization settings of hybrid queries.
+         *
+         * @param hybrid the hybrid options, null to use the configured search pipeline
+         * @return the builder instance
+         */
+        public Builder hybrid(HybridOptions hybrid) {
+            this.hybrid = hybrid;
+            return this;
+        }
+
+        /**
+         * Sets whether the results may be served from the search result cache.
+         *
+         * @param cached false to always run the search against OpenSearch
+         * @return the builder instance
+         */
+        public Builder cached(boolean cached) {
+            this.cached = cached;
+            return this;
+        }
+
+        /**
+         * Sets the number of results.
+         *
+         * @param size the number of results, documents when collapsed, null for the configured default
+         * @return the builder instance
+         */
+        public Builder size(Integer size) {
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * Sets the settings of the vector part of the query.
+         *
+         * @param knn the kNN options, null for the defaults
+         * @return the builder instance
+         */
+        public Builder knn(KnnOptions knn) {
+            this.knn = knn;
+            return this;
+        }
+
+        /**
+         * Sets the filters every result has to match.
+         *
+         * @param filters the filters, null or empty to search every segment
+         * @return the builder instance
+         */
+        public Builder filters(List<SearchFilter> filters) {
+            this.filters = filters == null || filters.isEmpty() ? null : filters;
+            return this;
+        }
+
+        /**
+         * Builds a new SearchOptions with the configured values.
+         *
+         * @return a new SearchOptions instance
+         */
+        public SearchOptions build() {
+            return new SearchOptions(this);
+        }
+    }
+}
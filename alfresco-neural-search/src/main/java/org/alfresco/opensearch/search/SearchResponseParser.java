@@ -0,0 +1,78 @@
+package org.alfresco.opensearch.search;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Parses an OpenSearch search response incrementally with the Jackson streaming API,
+ * handing every hit over as soon as it is read instead of building the tree of the whole response.
+ */
+class SearchResponseParser {
+
+    /**
+     * Consumer of the hits of a search response.
+     */
+    @FunctionalInterface
+    interface HitConsumer {
+        void accept(JsonNode hit) throws IOException;
+    }
+
+    private final ObjectMapper objectMapper;
+
+    SearchResponseParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Parses a search response, reading only one hit at a time into memory.
+     *
+     * @param response    the search response stream
+     * @param hitConsumer the consumer of every hit, in response order
+     * @return the search response without its hits, holding the total number of hits and the aggregations
+     * @throws IOException if the response cannot be read or parsed
+     */
+    JsonNode parse(InputStream response, HitConsumer hitConsumer) throws IOException {
+        ObjectNode summary = objectMapper.createObjectNode();
+        try (JsonParser parser = objectMapper.getFactory().createParser(response)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("hits".equals(field)) {
+                    parseHits(parser, summary.putObject("hits"), hitConsumer);
+                } else {
+                    summary.set(field, objectMapper.readTree(parser));
+                }
+            }
+        }
+        return summary;
+    }
+
+    private void parseHits(JsonParser parser, ObjectNode hitsSummary, HitConsumer hitConsumer) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("hits".equals(field)) {
+                expect(parser.currentToken(), JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    hitConsumer.accept(objectMapper.readTree(parser));
+                }
+            } else {
+                hitsSummary.set(field, objectMapper.readTree(parser));
+            }
+        }
+    }
+
+    private static void expect(JsonToken token, JsonToken expected) throws IOException {
+        if (token != expected) {
+            throw new IOException("Unexpected search response: found " + token + " instead of " + expected);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package org.alfresco.opensearch.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.alfresco.opensearch.index.IndexCheckpointEvent;
+import org.alfresco.rest.DocumentBean;
+import org.alfresco.utils.FutureUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches search results by query, search type, options and authority set of the caller.
+ * Every entry is dropped when the indexer advances its checkpoint, so that cached results never hide
+ * content, metadata or permission changes that are already searchable.
+ */
+@Component
+public class SearchResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(SearchResultCache.class);
+
+    // Rough per-object overhead used when estimating the memory held by an entry
+    private static final int OBJECT_OVERHEAD = 64;
+
+    @Value("${opensearch.search.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${opensearch.search.cache.size:1000}")
+    private long maximumEntries;
+
+    @Value("${opensearch.search.cache.memory:64MB}")
+    private DataSize maximumMemory;
+
+    @Value("${opensearch.search.cache.ttl:10m}")
+    private Duration timeToLive;
+
+    // Incremented on every invalidation, so that results computed before it are not cached after it
+    private final AtomicLong generation = new AtomicLong();
+
+    private Cache<String, Object> cache;
+
+    /**
+     * A search whose result can be cached.
+     *
+     * @param <T> the type of the search result
+     */
+    @FunctionalInterface
+    public interface CacheableSearch<T> {
+        T execute() throws Exception;
+    }
+
+    /**
+     * Creates the result cache. Entries are weighted by their estimated size in bytes, with a minimum weight
+     * of memory / size, which bounds both the memory held and the number of entries.
+     */
+    @PostConstruct
+    public void init() {
+        long maximumWeight = maximumMemory.toBytes();
+        long minimumWeight = Math.max(1, maximumWeight / Math.max(1, maximumEntries));
+        cache = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumWeight(maximumWeight)
+                .<String, Object>weigher((key, value) ->
+                        (int) Math.min(Integer.MAX_VALUE, Math.max(minimumWeight, estimateSize(key, value))))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Gets the result of a search from the cache, executing the search on a cache miss.
+     *
+     * @param key    the cache key, see {@link #getKey}
+     * @param search the search to execute on a cache miss
+     * @param <T>    the type of the search result
+     * @return the search result
+     * @throws Exception if an error occurs during the search
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, CacheableSearch<T> search) throws Exception {
+        if (!enabled) {
+            return search.execute();
+        }
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        long searchGeneration = generation.get();
+        T result = search.execute();
+        if (result != null && searchGeneration == generation.get()) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the result of a search from the cache, starting the search asynchronously on a cache miss.
+     *
+     * @param key    the cache key, see {@link #getKey}
+     * @param search starts the search on a cache miss
+     * @param <T>    the type of the search result
+     * @return a future completed with the search result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getAsync(String key, Supplier<CompletableFuture<T>> search) {
+        if (!enabled) {
+            return search.get();
+        }
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture((T) cached);
+        }
+        long searchGeneration = generation.get();
+        CompletableFuture<T> execution = search.get();
+        return FutureUtils.propagateCancellation(execution.thenApply(result -> {
+            if (result != null && searchGeneration == generation.get()) {
+                cache.put(key, result);
+            }
+            return result;
+        }), execution);
+    }
+
+    /**
+     * Builds the cache key of a search.
+     *
+     * @param kind        the kind of result cached, distinguishing searches returning different types
+     * @param query       the search query
+     * @param searchType  the type of search
+     * @param options     the resolved search options, including paging
+     * @param authorities the authorities of the caller, or null for searches not filtered by permissions
+     * @return the cache key
+     */
+    public static String getKey(String kind, String query, String searchType, SearchOptions options,
+                                Collection<String> authorities) {
+        return String.join("\u0000", kind, searchType.toLowerCase(), query, options.toString(),
+                getAuthorityHash(authorities));
+    }
+
+    /**
+     * Hashes a set of authorities, independently of their order.
+     *
+     * @param authorities the authorities of the caller, may be null
+     * @return the SHA-256 hash of the sorted authorities, or an empty string when there is no authority
+     */
+    static String getAuthorityHash(Collection<String> authorities) {
+        if (authorities == null || authorities.isEmpty()) {
+            return "";
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String authority : new TreeSet<>(authorities)) {
+                digest.update(authority.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Drops every cached result once the indexer has advanced its checkpoint.
+     *
+     * @param event the checkpoint event
+     */
+    @EventListener
+    public void onCheckpoint(IndexCheckpointEvent event) {
+        invalidateAll();
+        LOG.debug("Search result cache invalidated at transaction {}", event.getLastTransactionId());
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Gets the statistics of the result cache.
+     *
+     * @return the cache statistics
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Gets the number of results in the cache.
+     *
+     * @return the approximate number of cached results
+     */
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Gets the estimated memory held by the cached results.
+     *
+     * @return the weighted size of the cache in bytes
+     */
+    public long getWeightedSize() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /**
+     * Estimates the memory held by a cache entry.
+     *
+     * @param key   the cache key
+     * @param value the cached result
+     * @return the estimated size in bytes
+     */
+    private static long estimateSize(String key, Object value) {
+        long size = OBJECT_OVERHEAD + 2L * key.length();
+        if (value instanceof List<?> documents) {
+            for (Object document : documents) {
+                size += estimateSize((DocumentBean) document);
+            }
+        } else if (value instanceof JsonNode node) {
+            // JSON text length is a fair approximation of the memory held by the parsed tree
+            size += 2L * node.toString().length();
+        }
+        return size;
+    }
+
+    private static long estimateSize(DocumentBean document) {
+        long size = OBJECT_OVERHEAD + 2L * (length(document.getUuid()) + length(document.getName())
+                + length(document.getText()) + length(document.getNodeRef()));
+        if (document.getPassages() != null) {
+            for (String passage : document.getPassages()) {
+                size += OBJECT_OVERHEAD + 2L * length(passage);
+            }
+        }
+        return size;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
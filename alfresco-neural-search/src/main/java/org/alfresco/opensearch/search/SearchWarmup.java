@@ -0,0 +1,122 @@
+package org.alfresco.opensearch.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.alfresco.opensearch.client.OpenSearchClient;
+import org.alfresco.opensearch.index.Index;
+import org.alfresco.opensearch.index.OpenSearchConfiguredEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Warms up searches once OpenSearch is configured, before the application reports that it is ready, so that the
+ * first user searches do not pay for cold caches. The native HNSW graphs of the content index are loaded with the
+ * kNN warmup API, then representative queries are searched with every configured search type, without the result
+ * cache: they compute query embeddings with the model, and read the vector files, graphs and postings of Lucene.
+ * The queries are configured, or else the names of the last indexed documents. A failed warm-up is logged and
+ * does not prevent the application from being ready.
+ */
+@Component
+public class SearchWarmup {
+
+    static final Logger LOG = LoggerFactory.getLogger(SearchWarmup.class);
+
+    @Value("${opensearch.index.name}")
+    private String indexName;
+
+    @Value("${opensearch.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${opensearch.warmup.queries:}")
+    private List<String> queries;
+
+    @Value("${opensearch.warmup.sample.size:5}")
+    private int sampleSize;
+
+    @Value("${opensearch.warmup.search.types:neural,hybrid}")
+    private List<String> searchTypes;
+
+    @Value("${opensearch.warmup.iterations:2}")
+    private int iterations;
+
+    @Autowired
+    private Index index;
+
+    @Autowired
+    private Search search;
+
+    @Autowired
+    private OpenSearchClient openSearchClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Warms up the kNN graphs and searches when OpenSearch is configured.
+     *
+     * @param event the configuration event
+     */
+    @EventListener
+    public void onConfigured(OpenSearchConfiguredEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            int shards = index.warmUpKnnGraphs();
+            if (shards >= 0) {
+                LOG.info("WARMUP: kNN graphs of {} shards of index {} loaded", shards, indexName);
+            }
+        } catch (Exception e) {
+            LOG.warn("WARMUP: Unable to load the kNN graphs of index {}: {}", indexName, e.getMessage());
+        }
+        try {
+            List<String> warmupQueries = getQueries();
+            SearchOptions options = SearchOptions.builder().cached(false).build();
+            for (String searchType : searchTypes) {
+                long typeStart = System.currentTimeMillis();
+                for (int i = 0; i < iterations; i++) {
+                    for (String query : warmupQueries) {
+                        search.search(query, searchType, options);
+                    }
+                }
+                LOG.info("WARMUP: {} {} searches in {} ms", warmupQueries.size() * iterations, searchType,
+                        System.currentTimeMillis() - typeStart);
+            }
+        } catch (Exception e) {
+            LOG.warn("WARMUP: Search warm-up failed: {}", e.getMessage());
+        }
+        LOG.info("WARMUP: Completed in {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Gets the configured queries, or the names of the last indexed documents.
+     */
+    private List<String> getQueries() throws IOException {
+        List<String> configured = queries.stream().map(String::trim).filter(query -> !query.isEmpty()).toList();
+        if (!configured.isEmpty()) {
+            return configured;
+        }
+        String query = """
+                {
+                  "size": %d,
+                  "_source": ["name"],
+                  "sort": [ { "dbid": "desc" } ]
+                }""".formatted(sampleSize);
+        JsonNode response = objectMapper.readTree(openSearchClient.executeRequest("POST",
+                "/" + indexName + "/_search", query));
+        Set<String> names = new LinkedHashSet<>();
+        response.path("hits").path("hits").forEach(hit -> names.add(hit.path("_source").path("name").asText()));
+        names.remove("");
+        return new ArrayList<>(names);
+    }
+}
@@ -0,0 +1,184 @@
+package org.alfresco.opensearch.search;
+
+import org.alfresco.rest.Snippet;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extraction of bounded snippets from segment texts, either from an OpenSearch highlight fragment
+ * or from the sentence window sharing the most terms with the query.
+ */
+final class Snippets {
+
+    // Tags around highlighted terms, control characters that cannot be mistaken for segment text
+    static final char PRE_TAG = '\u0002';
+    static final char POST_TAG = '\u0003';
+
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private Snippets() {
+    }
+
+    /**
+     * Builds a snippet from a highlight fragment, locating the fragment and its highlighted terms in the segment text.
+     *
+     * @param text     the segment text
+     * @param fragment the highlight fragment, with terms between {@link #PRE_TAG} and {@link #POST_TAG}
+     * @param size     the maximum length of the snippet
+     * @return the snippet
+     */
+    static Snippet fromHighlight(String text, String fragment, int size) {
+        StringBuilder plain = new StringBuilder(fragment.length());
+        List<int[]> highlights = new ArrayList<>();
+        int termStart = -1;
+        for (int i = 0; i < fragment.length(); i++) {
+            char c = fragment.charAt(i);
+            if (c == PRE_TAG) {
+                termStart = plain.length();
+            } else if (c == POST_TAG) {
+                if (termStart >= 0) {
+                    highlights.add(new int[]{termStart, plain.length()});
+                }
+                termStart = -1;
+            } else {
+                plain.append(c);
+            }
+        }
+
+        int start = text.indexOf(plain.toString());
+        if (start < 0) {
+            Snippet snippet = bound(plain.toString(), 0, plain.length(), highlights, size);
+            return new Snippet(snippet.getText(), -1, -1, snippet.getHighlights());
+        }
+        highlights.forEach(highlight -> {
+            highlight[0] += start;
+            highlight[1] += start;
+        });
+        return bound(text, start, start + plain.length(), highlights, size);
+    }
+
+    /**
+     * Selects the window of consecutive sentences sharing the most distinct terms with the query, then the most
+     * occurrences of them, and fitting in the snippet size. The leading window is selected when no term is shared.
+     *
+     * @param text  the segment text
+     * @param query the search query
+     * @param size  the maximum length of the snippet
+     * @return the snippet
+     */
+    static Snippet bestWindow(String text, String query, int size) {
+        Set<String> terms = new HashSet<>();
+        Matcher queryTerms = TERM.matcher(query);
+        while (queryTerms.find()) {
+            terms.add(queryTerms.group().toLowerCase(Locale.ROOT));
+        }
+        List<int[]> matches = new ArrayList<>();
+        List<String> matchedTerms = new ArrayList<>();
+        Matcher textTerms = TERM.matcher(text);
+        while (textTerms.find()) {
+            String term = textTerms.group().toLowerCase(Locale.ROOT);
+            if (terms.contains(term)) {
+                matches.add(new int[]{textTerms.start(), textTerms.end()});
+                matchedTerms.add(term);
+            }
+        }
+
+        List<Integer> boundaries = new ArrayList<>();
+        BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+        sentences.setText(text);
+        for (int boundary = sentences.first(); boundary != BreakIterator.DONE; boundary = sentences.next()) {
+            boundaries.add(boundary);
+        }
+
+        int bestStart = 0;
+        int bestEnd = Math.min(text.length(), size);
+        long bestScore = -1;
+        for (int i = 0; i < boundaries.size() - 1; i++) {
+            int start = boundaries.get(i);
+            int end = boundaries.get(i + 1);
+            for (int j = i + 2; j < boundaries.size() && boundaries.get(j) - start <= size; j++) {
+                end = boundaries.get(j);
+            }
+            long score = score(matches, matchedTerms, start, end);
+            if (score > bestScore) {
+                bestScore = score;
+                bestStart = start;
+                bestEnd = end;
+            }
+        }
+
+        List<int[]> highlights = new ArrayList<>();
+        for (int[] match : matches) {
+            if (match[0] >= bestStart && match[1] <= bestEnd) {
+                highlights.add(match);
+            }
+        }
+        return bound(text, bestStart, bestEnd, highlights, size);
+    }
+
+    private static long score(List<int[]> matches, List<String> matchedTerms, int start, int end) {
+        Set<String> distinct = new HashSet<>();
+        int occurrences = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            if (matches.get(i)[0] >= start && matches.get(i)[1] <= end) {
+                distinct.add(matchedTerms.get(i));
+                occurrences++;
+            }
+        }
+        return distinct.size() * 100_000L + occurrences;
+    }
+
+    /**
+     * Builds the snippet of a range of the text, shortened around its first highlighted term when it exceeds
+     * the snippet size, and cut at word boundaries.
+     *
+     * @param text       the text
+     * @param start      the start of the range
+     * @param end        the end of the range
+     * @param highlights the highlighted terms, as offsets in the text
+     * @param size       the maximum length of the snippet
+     * @return the snippet, with highlights relative to its text
+     */
+    private static Snippet bound(String text, int start, int end, List<int[]> highlights, int size) {
+        if (end - start > size) {
+            int anchor = highlights.isEmpty() ? start : highlights.get(0)[0];
+            int boundedStart = Math.max(start, Math.min(anchor - size / 4, end - size));
+            int boundedEnd = boundedStart + size;
+            int wordStart = boundedStart;
+            while (wordStart > start && wordStart < boundedEnd && !Character.isWhitespace(text.charAt(wordStart - 1))) {
+                wordStart++;
+            }
+            int wordEnd = boundedEnd;
+            while (wordEnd > wordStart && wordEnd < end && !Character.isWhitespace(text.charAt(wordEnd))) {
+                wordEnd--;
+            }
+            if (wordEnd > wordStart) {
+                boundedStart = wordStart;
+                boundedEnd = wordEnd;
+            }
+            start = boundedStart;
+            end = boundedEnd;
+        }
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+
+        List<int[]> relativeHighlights = new ArrayList<>();
+        for (int[] highlight : highlights) {
+            if (highlight[0] >= start && highlight[1] <= end) {
+                relativeHighlights.add(new int[]{highlight[0] - start, highlight[1] - start});
+            }
+        }
+        return new Snippet(text.substring(start, end), start, end, relativeHighlights);
+    }
+}
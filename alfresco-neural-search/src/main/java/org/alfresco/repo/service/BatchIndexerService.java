@@ -1,5 +1,7 @@
 package org.alfresco.repo.service;
 import java.util.Collections;
+import org.alfresco.embedding.EmbeddingProvider;
+import org.alfresco.embedding.OpenSearchEmbeddingProvider;
 import org.alfresco.opensearch.client.AlfrescoContentApiClient;
 import org.alfresco.opensearch.model.acl.AclEntry;
 import org.alfresco.opensearch.model.acl.AclStatus;
@@ -7,13 +9,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.alfresco.opensearch.client.AlfrescoSolrApiClientFactory;
 import org.alfresco.opensearch.index.Index;
+import org.alfresco.opensearch.index.MetadataMapping;
+import org.alfresco.opensearch.index.ModelMetadata;
 import org.alfresco.opensearch.index.OpenSearchConfiguration;
 import org.alfresco.opensearch.ingest.Indexer;
 import org.alfresco.repo.service.beans.Node;
 import org.alfresco.repo.service.beans.NodeContainer;
 import org.alfresco.repo.service.beans.TransactionNodeContainer;
 import org.alfresco.repo.service.beans.TransactionNode;
-import org.alfresco.utils.JsonUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,7 +27,6 @@ import org.springframework.core.env.Environment;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.IntStream;
 
 import static org.alfresco.utils.JsonUtils.replaceUnicode;
 
@@ -42,8 +44,9 @@ public class BatchIndexerService {
     public static final String CONTENT = "{http://www.alfresco.org/model/content/1.0}content";
     public static final String SPACES_STORE = "SpacesStore";
 
-    // Max number of tokens handled by the NLP token
-    private static final int MAX_TOKENS = 512;
+    // Segment size when the model does not declare its maximum sequence length. Segments are limited in characters:
+    // as every token spans at least one character, a segment is embedded without truncation
+    private static final int DEFAULT_SEGMENT_SIZE = 512;
 
     @Value("${batch.indexer.transaction.maxResults}")
     private int maxResults;
@@ -51,6 +54,18 @@ public class BatchIndexerService {
     @Value("${batch.indexer.indexableTypes}")
     private String indexableTypes;
 
+    @Value("${batch.indexer.paths.enabled:false}")
+    private boolean pathsEnabled;
+
+    @Value("${batch.indexer.segment.size:0}")
+    private int segmentSize;
+
+    @Value("${batch.indexer.inference.mode:pipeline}")
+    private String inferenceMode;
+
+    @Value("${batch.indexer.inference.batch.size:16}")
+    private int inferenceBatchSize;
+
     @Autowired
     private Indexer indexer;
 
@@ -68,16 +83,32 @@ public class BatchIndexerService {
 
     @Autowired
     private Environment environment;
+
+    @Autowired
+    private IndexerExecutor indexerExecutor;
+
+    @Autowired
+    private MetadataMapping metadataMapping;
+
+    @Autowired
+    private EmbeddingProvider embeddingProvider;
+
     /**
      * Schedules the indexing process according to the cron expression specified in properties.
+     * Runs are skipped until OpenSearch is configured and while the model is not deployed, instead of waiting,
+     * so that the scheduler thread stays available to the model watchdog.
      */
     @Scheduled(cron = "${batch.indexer.cron}")
     public void index() {
         try {
-            if (openSearchConfiguration.getLatch().getCount() > 0) {
+            if (!openSearchConfiguration.isConfigured()) {
                 LOG.info("INDEXER: Waiting for OpenSearch to be configured...");
+                return;
+            }
+            if (!openSearchConfiguration.isReady()) {
+                LOG.info("INDEXER: Waiting for model {} to be deployed...", openSearchConfiguration.getModelId());
+                return;
             }
-            openSearchConfiguration.getLatch().await();
             internalIndex();
         } catch (Exception e) {
             LOG.error("Error during indexing", e);
@@ -161,28 +192,14 @@ public class BatchIndexerService {
      * @throws Exception if an error occurs during processing
      */
     private void processRawNode(TransactionNode transactionNode) throws Exception {
-        String payload = String.format("""
-                {
-                    "nodeIds": [%s],
-                    "includeAclId": false,
-                    "includeOwner": false,
-                    "includePaths": false,
-                    "includeParentAssociations": false,
-                    "includeChildIds": false,
-                    "includeChildAssociations": false
-                }
-                """, transactionNode.getId());
-        String metadataResponse = alfrescoSolrApiClient.executePostRequest("metadata", payload);
-
-        ObjectMapper objectMapper = new ObjectMapper();
-
         switch (transactionNode.getStatus()) {
             // Created or Updated
             case "u":
-                NodeContainer nodeContainer = objectMapper.readValue(metadataResponse, NodeContainer.class);
-                for (Node node : nodeContainer.getNodes()) {
+                for (Node node : getNodes(List.of(transactionNode.getId()))) {
                     if (isIndexableType(node.getType())) {
                         processNode(node);
+                    } else if (pathsEnabled) {
+                        updateMovedDocuments(node);
                     }
                 }
                 break;
@@ -201,6 +218,92 @@ public class BatchIndexerService {
         }
     }
 
+    /**
+     * Retrieves the metadata of nodes from the Solr API, with their paths when paths are indexed.
+     *
+     * @param nodeIds the database IDs of the nodes
+     * @return the nodes
+     * @throws Exception if an error occurs during the API request
+     */
+    private List<Node> getNodes(List<Long> nodeIds) throws Exception {
+        String payload = String.format("""
+                {
+                    "nodeIds": %s,
+                    "includeAclId": false,
+                    "includeOwner": false,
+                    "includePaths": %b,
+                    "includeParentAssociations": false,
+                    "includeChildIds": false,
+                    "includeChildAssociations": false
+                }
+                """, nodeIds, pathsEnabled);
+        String metadataResponse = alfrescoSolrApiClient.executePostRequest("metadata", payload);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        return objectMapper.readValue(metadataResponse, NodeContainer.class).getNodes();
+    }
+
+    /**
+     * Updates the location of the documents indexed under a node that is not indexed itself, such as a folder,
+     * when the node was moved: such a move changes the ancestors of every document below the node, while only
+     * the node itself is part of the transaction.
+     *
+     * @param node the node, with its paths
+     * @throws Exception if an error occurs while looking up or updating the moved documents
+     */
+    private void updateMovedDocuments(Node node) throws Exception {
+        String uuid = NodeLocation.getUuid(node.getNodeRef());
+        List<Long> dbids = indexer.findMovedDocuments(uuid, NodeLocation.of(node).getAncestors());
+        if (dbids.isEmpty()) {
+            return;
+        }
+        LOG.debug("Updating location of {} documents moved with node {}", dbids.size(), uuid);
+        for (int from = 0; from < dbids.size(); from += maxResults) {
+            for (Node document : getNodes(dbids.subList(from, Math.min(from + maxResults, dbids.size())))) {
+                NodeLocation location = NodeLocation.of(document);
+                indexer.updateLocation(NodeLocation.getUuid(document.getNodeRef()), location.getAncestors(),
+                        location.getSite());
+            }
+        }
+    }
+
+    /**
+     * Updates the location of an indexed document whose content did not change, when its current location
+     * differs from the indexed one. Documents indexed before paths were enabled get their location this way.
+     *
+     * @param uuid    the ID of the document
+     * @param node    the node of the document, with its paths
+     * @param indexed the indexed fields of the document
+     * @return true if the location has been updated
+     */
+    private boolean updateLocation(String uuid, Node node, JsonNode indexed) {
+        if (!pathsEnabled) {
+            return false;
+        }
+        NodeLocation location = NodeLocation.of(node);
+        if (location.equals(NodeLocation.of(indexed))) {
+            return false;
+        }
+        LOG.debug("Moved: updating location of node {} to {}", uuid, location);
+        indexer.updateLocation(uuid, location.getAncestors(), location.getSite());
+        return true;
+    }
+
+    /**
+     * Gets the fields indexed with every segment of a document: its metadata fields, and its location
+     * when paths are indexed.
+     *
+     * @param node the node of the document
+     * @return the indexed fields and their values
+     */
+    private Map<String, List<String>> getIndexedFields(Node node) {
+        Map<String, List<String>> fields = metadataMapping.extract(node.getProperties());
+        if (pathsEnabled) {
+            NodeLocation.of(node).addTo(fields);
+        }
+        return fields;
+    }
+
     /**
      * Checks if the node type is indexable based on the configured indexable types.
      *
@@ -245,15 +348,17 @@ public class BatchIndexerService {
         String contentId = ((Map<?, ?>) node.getProperties().get(CONTENT)).get("contentId").toString();
 
         // Retrieve indexed contentId
-        String contentIdInOS = indexer.getContentId(uuid);
+        JsonNode indexed = indexer.getIndexedDocument(uuid);
+        String contentIdInOS = indexed == null ? "" : indexed.path("contentId").asText("");
 
         // Avoid processing nodes in ArchiveStore or VersionStore
         if (storeIdentifier.equals(SPACES_STORE)) {
             if (!contentId.equals(contentIdInOS)) {
                 String content = alfrescoSolrApiClient.executeGetRequest("textContent?nodeId=" + node.getId());
-                indexer.deleteDocumentIfExists(uuid);
-                indexSegments(uuid, node.getId(), contentId, name, splitIntoSegments(JsonUtils.escape(content)));
-            } else {
+                indexer.deleteDocument(uuid);
+                indexSegments(uuid, node.getId(), contentId, name, splitIntoSegments(content, getSegmentSize()),
+                        getIndexedFields(node));
+            } else if (!updateLocation(uuid, node, indexed)) {
                 LOG.debug("Un-indexed: ContentId for node {} has not changed {}", uuid, contentId);
             }
         }
@@ -268,25 +373,109 @@ public class BatchIndexerService {
      * @param contentId the ID of the content
      * @param documentName the name of the document
      * @param segments the segments to index
+     * @param metadata the values of the metadata and location fields of the document
+     */
+    private void indexSegments(String documentId, Long dbid, String contentId, String documentName, List<String> segments,
+                               Map<String, List<String>> metadata) {
+        indexSegments(documentId, dbid, contentId, documentName, segments, null, null, null, metadata);
+    }
+
+    /**
+     * Indexes segments of a document, with ACL information when given. In "pipeline" inference mode, every segment
+     * is indexed on its own and embedded by the ingest pipeline of the index. In "client" inference mode, segments
+     * are embedded in batches by the {@link EmbeddingProvider} and indexed with their embeddings in bulk, skipping
+     * the ingest pipeline: inference is shared by the segments of a batch, and failures of inference and of indexing
+     * are reported apart. With the OpenSearch embedding provider, the segments of a batch whose inference failed
+     * are indexed through the ingest pipeline, which runs the same model. Other providers compute embeddings that
+     * the ingest pipeline cannot reproduce: a failed inference fails the document instead, so that the checkpoint
+     * does not advance past it and the transaction is indexed again.
+     *
+     * @param documentId the ID of the document
+     * @param dbid the ID of the document in the database
+     * @param contentId the ID of the content
+     * @param documentName the name of the document
+     * @param segments the segments to index
+     * @param acl the ACL entries, or null
+     * @param readers the authorities allowed to read the document, or null
+     * @param nodeRef the node reference, or null
+     * @param metadata the values of the metadata and location fields of the document
      */
-    private void indexSegments(String documentId, Long dbid, String contentId, String documentName, List<String> segments) {
+    private void indexSegments(String documentId, Long dbid, String contentId, String documentName,
+                               List<String> segments, List<AclEntry> acl, List<String> readers, String nodeRef,
+                               Map<String, List<String>> metadata) {
         LOG.debug("Indexing {} document parts for {} - {} - {} - {}", segments.size(), dbid, contentId, documentId, documentName);
-        IntStream.range(0, segments.size())
-                .parallel()
-                .forEach(i -> {
-                    String segmentId = documentId + "_" + i;
-                    indexer.index(segmentId, dbid, contentId, documentName, segments.get(i));
-                });
+        if (!"client".equals(inferenceMode) || (embeddingProvider.getId() == null && isPipelineModel())) {
+            indexerExecutor.runAll(segments.size(), i -> {
+                String segmentId = documentId + "_" + i;
+                indexer.index(segmentId, dbid, contentId, documentName, segments.get(i), acl, readers, nodeRef, metadata);
+            });
+            return;
+        }
+        int batchSize = Math.max(1, inferenceBatchSize);
+        indexerExecutor.runAll((segments.size() + batchSize - 1) / batchSize, batch -> {
+            int from = batch * batchSize;
+            List<String> texts = segments.subList(from, Math.min(from + batchSize, segments.size()));
+            List<float[]> embeddings;
+            try {
+                embeddings = embeddingProvider.embed(texts);
+            } catch (Exception e) {
+                if (!isPipelineModel()) {
+                    throw new IllegalStateException("Inference failed for segments %d to %d of document %s"
+                            .formatted(from, from + texts.size() - 1, documentId), e);
+                }
+                // The segments are still indexed, so that the document is complete when the checkpoint advances
+                LOG.error("Inference failed for segments {} to {} of document {}, indexing them through the ingest"
+                        + " pipeline", from, from + texts.size() - 1, documentId, e);
+                for (int i = 0; i < texts.size(); i++) {
+                    indexer.index(documentId + "_" + (from + i), dbid, contentId, documentName, texts.get(i), acl,
+                            readers, nodeRef, metadata);
+                }
+                return;
+            }
+            int failures = indexer.indexSegments(documentId, from, dbid, contentId, documentName, texts, embeddings,
+                    acl, readers, nodeRef, metadata);
+            if (failures > 0) {
+                LOG.error("Indexing failed for {} of segments {} to {} of document {}", failures, from,
+                        from + texts.size() - 1, documentId);
+            }
+        });
+    }
+
+    /**
+     * Checks whether the embedding provider runs the model of the ingest pipeline, so that segments can be embedded
+     * by the pipeline instead of the provider.
+     *
+     * @return true for the OpenSearch embedding provider
+     */
+    private boolean isPipelineModel() {
+        return embeddingProvider instanceof OpenSearchEmbeddingProvider;
+    }
+
+    /**
+     * Gets the maximum number of characters of a segment: the configured size, or the maximum sequence length
+     * of the deployed model, so that a smaller model gets shorter segments.
+     *
+     * @return the segment size
+     */
+    private int getSegmentSize() {
+        if (segmentSize > 0) {
+            return segmentSize;
+        }
+        ModelMetadata modelMetadata = openSearchConfiguration.getModelMetadata();
+        return modelMetadata != null && modelMetadata.getMaxSequenceLength() != null
+                ? modelMetadata.getMaxSequenceLength()
+                : DEFAULT_SEGMENT_SIZE;
     }
 
     /**
      * Splits text into segments for indexing.
      *
-     * @param text the text to split
+     * @param text        the text to split
+     * @param segmentSize the maximum number of characters of a segment
      * @return a list of text segments
      */
-    private static List<String> splitIntoSegments(String text) {
-        text = text.replace("\\n", " ").replace("\\r", " ");
+    private static List<String> splitIntoSegments(String text, int segmentSize) {
+        // Line breaks are split as any whitespace, the raw content is only escaped when written to the index
         text = replaceUnicode(text);
 
         String[] tokens = text.split("\\s+");
@@ -294,7 +483,7 @@ public class BatchIndexerService {
         StringBuilder currentSegment = new StringBuilder();
 
         for (String token : tokens) {
-            if (currentSegment.length() + token.length() + 1 > MAX_TOKENS) {
+            if (currentSegment.length() + token.length() + 1 > segmentSize) {
                 segments.add(currentSegment.toString().trim());
                 currentSegment = new StringBuilder();
             }
@@ -334,7 +523,8 @@ private void processNodeWithAcl(Node node) throws Exception {
         }
 
         // Retrieve indexed contentId
-        String contentIdInOS = indexer.getContentId(uuid);
+        JsonNode indexed = indexer.getIndexedDocument(uuid);
+        String contentIdInOS = indexed == null ? "" : indexed.path("contentId").asText("");
 
         // Check if content has changed
         if (!contentId.equals(contentIdInOS)) {
@@ -387,15 +577,16 @@ private void processNodeWithAcl(Node node) throws Exception {
                 readers.add("GROUP_EVERYONE");
             }
 
-            // Delete existing document if it exists
-            indexer.deleteDocumentIfExists(uuid);
+            // Delete every segment of the previous content of the document
+            indexer.deleteDocument(uuid);
 
             // Index document segments with ACL information
-            List<String> segments = splitIntoSegments(JsonUtils.escape(content));
-            indexSegmentsWithAcl(uuid, node.getId(), contentId, name, segments, aclEntries, readers, nodeRef);
+            List<String> segments = splitIntoSegments(content, getSegmentSize());
+            indexSegmentsWithAcl(uuid, node.getId(), contentId, name, segments, aclEntries, readers, nodeRef,
+                    getIndexedFields(node));
 
             LOG.debug("Indexed: {} - {} - {}", uuid, contentId, name);
-        } else {
+        } else if (!updateLocation(uuid, node, indexed)) {
             LOG.debug("Un-indexed: ContentId for node {} has not changed {}", uuid, contentId);
         }
     } catch (Exception e) {
@@ -411,13 +602,8 @@ private boolean isReadPermission(String permission) {
 }
 
 private void indexSegmentsWithAcl(String documentId, Long dbid, String contentId, String documentName, 
-                                 List<String> segments, List<AclEntry> acl, List<String> readers, String nodeRef) {
-    LOG.debug("Indexing {} document parts for {} - {} - {} - {}", segments.size(), dbid, contentId, documentId, documentName);
-    IntStream.range(0, segments.size())
-            .parallel()
-            .forEach(i -> {
-                String segmentId = documentId + "_" + i;
-                indexer.index(segmentId, dbid, contentId, documentName, segments.get(i), acl, readers, nodeRef);
-            });
+                                 List<String> segments, List<AclEntry> acl, List<String> readers, String nodeRef,
+                                 Map<String, List<String>> metadata) {
+    indexSegments(documentId, dbid, contentId, documentName, segments, acl, readers, nodeRef, metadata);
 }
 }
@@ -0,0 +1,81 @@
+package org.alfresco.repo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the per-segment indexing work of the batch indexer. Segments are indexed on virtual threads when
+ * virtual threads are enabled (Java 21), otherwise on a dedicated pool of platform threads, instead of the common
+ * ForkJoinPool which is sized for CPU-bound work and shared with the rest of the application.
+ * The executor is kept private, so that it does not replace the application task executor of Spring Boot.
+ */
+@Component
+public class IndexerExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexerExecutor.class);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${batch.indexer.parallelism:0}")
+    private int parallelism;
+
+    private AsyncTaskExecutor executor;
+
+    /**
+     * Creates the executor, bounding the number of segments indexed concurrently by "batch.indexer.parallelism",
+     * or by the number of processors when it is not set.
+     */
+    @PostConstruct
+    public void init() {
+        int concurrency = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        LOG.info("Indexing up to {} segments concurrently on {} threads", concurrency, virtualThreads ? "virtual" : "platform");
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor virtualThreadExecutor = new SimpleAsyncTaskExecutor("indexer-");
+            virtualThreadExecutor.setVirtualThreads(true);
+            virtualThreadExecutor.setConcurrencyLimit(concurrency);
+            executor = virtualThreadExecutor;
+        } else {
+            ThreadPoolTaskExecutor threadPoolExecutor = new ThreadPoolTaskExecutor();
+            threadPoolExecutor.setCorePoolSize(concurrency);
+            threadPoolExecutor.setMaxPoolSize(concurrency);
+            threadPoolExecutor.setThreadNamePrefix("indexer-");
+            threadPoolExecutor.initialize();
+            executor = threadPoolExecutor;
+        }
+    }
+
+    /**
+     * Stops the platform thread pool.
+     */
+    @PreDestroy
+    public void close() {
+        if (executor instanceof ThreadPoolTaskExecutor threadPoolExecutor) {
+            threadPoolExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Runs a task for every position concurrently, waiting for all of them.
+     *
+     * @param count the number of positions
+     * @param task  the task to run for a position
+     */
+    public void runAll(int count, IntConsumer task) {
+        CompletableFuture<?>[] tasks = IntStream.range(0, count)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> task.accept(i), executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).join();
+    }
+}
@@ -0,0 +1,143 @@
+package org.alfresco.repo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.alfresco.opensearch.index.Index;
+import org.alfresco.repo.service.beans.Node;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Location of a node in the repository: the ids of its ancestor nodes and the site it belongs to.
+ * Segments are indexed with the location of their document, so that a search is scoped to a folder tree
+ * or a site with a terms filter, and a move is detected by comparing the indexed location with the current one.
+ */
+class NodeLocation {
+
+    // Path elements of the sites folder, followed by the short name of a site
+    private static final List<String> SITES_ELEMENTS = List.of("/{http://www.alfresco.org/model/site/1.0}sites/", "/st:sites/");
+
+    private final List<String> ancestors;
+    private final String site;
+
+    NodeLocation(List<String> ancestors, String site) {
+        this.ancestors = ancestors;
+        this.site = site;
+    }
+
+    /**
+     * Gets the location of a node from its metadata, requested with paths.
+     *
+     * @param node the node
+     * @return the location of the node
+     */
+    static NodeLocation of(Node node) {
+        Set<String> ancestors = new LinkedHashSet<>();
+        if (node.getAncestors() != null) {
+            node.getAncestors().forEach(ancestor -> ancestors.add(getUuid(ancestor)));
+        }
+        String site = null;
+        if (node.getPaths() != null) {
+            for (JsonNode path : node.getPaths()) {
+                site = getSite(path.isTextual() ? path.asText() : path.path("path").asText());
+                if (site != null) {
+                    break;
+                }
+            }
+        }
+        return new NodeLocation(new ArrayList<>(ancestors), site);
+    }
+
+    /**
+     * Gets the location of an indexed segment.
+     *
+     * @param source the source of the segment
+     * @return the indexed location, without ancestors when the segment was indexed without paths
+     */
+    static NodeLocation of(JsonNode source) {
+        List<String> ancestors = new ArrayList<>();
+        source.path(Index.ANCESTORS_FIELD).forEach(ancestor -> ancestors.add(ancestor.asText()));
+        JsonNode site = source.path(Index.SITE_FIELD);
+        return new NodeLocation(ancestors, site.isTextual() ? site.asText() : null);
+    }
+
+    /**
+     * Gets the uuid of a node reference, such as "workspace://SpacesStore/uuid".
+     *
+     * @param nodeRef the node reference
+     * @return the uuid of the node
+     */
+    static String getUuid(String nodeRef) {
+        return nodeRef.substring(nodeRef.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Gets the short name of the site a QName path goes through, as the element following the sites folder.
+     *
+     * @param path the QName path of a node
+     * @return the short name of the site, or null when the path is not in a site
+     */
+    static String getSite(String path) {
+        for (String sites : SITES_ELEMENTS) {
+            int start = path.indexOf(sites);
+            if (start >= 0) {
+                String element = path.substring(start + sites.length());
+                // The namespace of a full QName holds slashes
+                int end = element.indexOf('/', Math.max(element.indexOf('}'), 0));
+                element = end < 0 ? element : element.substring(0, end);
+                String name = element.substring(Math.max(element.lastIndexOf('}'), element.indexOf(':')) + 1);
+                return name.isEmpty() ? null : name;
+            }
+        }
+        return null;
+    }
+
+    List<String> getAncestors() {
+        return ancestors;
+    }
+
+    String getSite() {
+        return site;
+    }
+
+    /**
+     * Adds the location fields to the fields indexed with every segment of the document.
+     *
+     * @param fields the indexed fields and their values
+     */
+    void addTo(Map<String, List<String>> fields) {
+        fields.put(Index.ANCESTORS_FIELD, ancestors);
+        if (site != null) {
+            fields.put(Index.SITE_FIELD, List.of(site));
+        }
+    }
+
+    /**
+     * Compares locations regardless of the order of the ancestors.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NodeLocation other)) {
+            return false;
+        }
+        return new HashSet<>(ancestors).equals(new HashSet<>(other.ancestors)) && Objects.equals(site, other.site);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(new HashSet<>(ancestors), site);
+    }
+
+    @Override
+    public String toString() {
+        return "ancestors=" + ancestors + ", site=" + site;
+    }
+}
@@ -1,5 +1,8 @@
 package org.alfresco.repo.service.beans;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
@@ -7,6 +10,7 @@ import java.util.Map;
 /**
  * Represents a node in the Alfresco repository.
  */
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class Node {
     private long id; // Unique identifier for the node
     private String tenantDomain; // Domain of the tenant to which the node belongs
@@ -16,8 +20,9 @@ public class Node {
     private int txnId; // Transaction identifier
     private Map<String, Serializable> properties; // Properties associated with the node
     private List<String> aspects; // Aspects associated with the node
-    private List<String> paths; // Paths to the node
-    private List<String> namePaths; // Paths to the node by name
+    private List<JsonNode> paths; // Paths to the node, as returned when paths are requested
+    private List<JsonNode> namePaths; // Paths to the node by name
+    private List<String> ancestors; // Node references of the ancestors of the node
 
     // Getters and setters
 
@@ -166,11 +171,12 @@ public class Node {
     }
 
     /**
-     * Retrieves the paths to the node.
+     * Retrieves the paths to the node. Every path is either a QName path string
+     * or an object holding it in its "path" field.
      *
      * @return The paths to the node.
      */
-    public List<String> getPaths() {
+    public List<JsonNode> getPaths() {
         return paths;
     }
 
@@ -179,7 +185,7 @@ public class Node {
      *
      * @param paths The paths to the node.
      */
-    public void setPaths(List<String> paths) {
+    public void setPaths(List<JsonNode> paths) {
         this.paths = paths;
     }
 
@@ -188,7 +194,7 @@ public class Node {
      *
      * @return The paths to the node by name.
      */
-    public List<String> getNamePaths() {
+    public List<JsonNode> getNamePaths() {
         return namePaths;
     }
 
@@ -197,7 +203,25 @@ public class Node {
      *
      * @param namePaths The paths to the node by name.
      */
-    public void setNamePaths(List<String> namePaths) {
+    public void setNamePaths(List<JsonNode> namePaths) {
         this.namePaths = namePaths;
     }
+
+    /**
+     * Retrieves the node references of the ancestors of the node, through every parent association.
+     *
+     * @return The ancestors of the node, or null when paths were not requested.
+     */
+    public List<String> getAncestors() {
+        return ancestors;
+    }
+
+    /**
+     * Sets the node references of the ancestors of the node.
+     *
+     * @param ancestors The ancestors of the node.
+     */
+    public void setAncestors(List<String> ancestors) {
+        this.ancestors = ancestors;
+    }
 }
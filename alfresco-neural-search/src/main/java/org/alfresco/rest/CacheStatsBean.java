@@ -0,0 +1,156 @@
+package org.alfresco.rest;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Represents the statistics of an in-memory cache.
+ */
+public class CacheStatsBean {
+
+    private String name;
+    private long size;
+    private Long weightedSize;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+
+    public CacheStatsBean() {
+    }
+
+    public CacheStatsBean(String name, long size, Long weightedSize, CacheStats stats) {
+        this.name = name;
+        this.size = size;
+        this.weightedSize = weightedSize;
+        this.hitCount = stats.hitCount();
+        this.missCount = stats.missCount();
+        this.hitRate = stats.hitRate();
+        this.evictionCount = stats.evictionCount();
+    }
+
+    /**
+     * Gets the name of the cache.
+     *
+     * @return the cache name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the cache.
+     *
+     * @param name the cache name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the number of entries in the cache.
+     *
+     * @return the approximate number of entries
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the number of entries in the cache.
+     *
+     * @param size the number of entries
+     */
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    /**
+     * Gets the estimated memory held by the cache, for caches bounded by memory.
+     *
+     * @return the weighted size in bytes, or null
+     */
+    public Long getWeightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * Sets the estimated memory held by the cache.
+     *
+     * @param weightedSize the weighted size in bytes
+     */
+    public void setWeightedSize(Long weightedSize) {
+        this.weightedSize = weightedSize;
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Sets the number of lookups served from the cache.
+     *
+     * @param hitCount the hit count
+     */
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    /**
+     * Gets the number of lookups not found in the cache.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Sets the number of lookups not found in the cache.
+     *
+     * @param missCount the miss count
+     */
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    /**
+     * Gets the ratio of lookups served from the cache.
+     *
+     * @return the hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    /**
+     * Sets the ratio of lookups served from the cache.
+     *
+     * @param hitRate the hit rate
+     */
+    public void setHitRate(double hitRate) {
+        this.hitRate = hitRate;
+    }
+
+    /**
+     * Gets the number of entries evicted by size, memory or expiration.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Sets the number of entries evicted.
+     *
+     * @param evictionCount the eviction count
+     */
+    public void setEvictionCount(long evictionCount) {
+        this.evictionCount = evictionCount;
+    }
+}
@@ -1,5 +1,7 @@
 package org.alfresco.rest;
 
+import java.util.List;
+
 /**
  * Bean class representing a document in search results.
  */
@@ -8,15 +10,30 @@ public class DocumentBean {
     private String name;
     private String text;
     private String nodeRef;
+    private Double score;
+    private List<String> passages;
+    private Snippet snippet;
 
     public DocumentBean() {
     }
 
     public DocumentBean(String uuid, String name, String text, String nodeRef) {
+        this(uuid, name, text, nodeRef, null, null);
+    }
+
+    public DocumentBean(String uuid, String name, String text, String nodeRef, Double score, List<String> passages) {
+        this(uuid, name, text, nodeRef, score, passages, null);
+    }
+
+    public DocumentBean(String uuid, String name, String text, String nodeRef, Double score, List<String> passages,
+                        Snippet snippet) {
         this.uuid = uuid;
         this.name = name;
         this.text = text;
         this.nodeRef = nodeRef;
+        this.score = score;
+        this.passages = passages;
+        this.snippet = snippet;
     }
 
     public String getUuid() {
@@ -51,6 +68,30 @@ public class DocumentBean {
         this.nodeRef = nodeRef;
     }
 
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
+
+    public List<String> getPassages() {
+        return passages;
+    }
+
+    public void setPassages(List<String> passages) {
+        this.passages = passages;
+    }
+
+    public Snippet getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(Snippet snippet) {
+        this.snippet = snippet;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -60,6 +101,9 @@ public class DocumentBean {
         private String name;
         private String text;
         private String nodeRef;
+        private Double score;
+        private List<String> passages;
+        private Snippet snippet;
 
         public Builder uuid(String uuid) {
             this.uuid = uuid;
@@ -81,8 +125,23 @@ public class DocumentBean {
             return this;
         }
 
+        public Builder score(Double score) {
+            this.score = score;
+            return this;
+        }
+
+        public Builder passages(List<String> passages) {
+            this.passages = passages;
+            return this;
+        }
+
+        public Builder snippet(Snippet snippet) {
+            this.snippet = snippet;
+            return this;
+        }
+
         public DocumentBean build() {
-            return new DocumentBean(uuid, name, text, nodeRef);
+            return new DocumentBean(uuid, name, text, nodeRef, score, passages, snippet);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package org.alfresco.rest;
+
+import java.util.List;
+
+/**
+ * Represents the results of a multi-search request, in the order of the searches requested.
+ */
+public class MultiSearchResponse {
+
+    private List<MultiSearchResult> results;
+    private long took;
+
+    public MultiSearchResponse() {
+    }
+
+    public MultiSearchResponse(List<MultiSearchResult> results, long took) {
+        this.results = results;
+        this.took = took;
+    }
+
+    /**
+     * Gets the result of every search.
+     *
+     * @return the list of results, in request order
+     */
+    public List<MultiSearchResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Sets the result of every search.
+     *
+     * @param results the list of results
+     */
+    public void setResults(List<MultiSearchResult> results) {
+        this.results = results;
+    }
+
+    /**
+     * Gets the total duration of the multi-search, including query embedding and authority resolution.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getTook() {
+        return took;
+    }
+
+    /**
+     * Sets the total duration of the multi-search.
+     *
+     * @param took the duration in milliseconds
+     */
+    public void setTook(long took) {
+        this.took = took;
+    }
+}
@@ -0,0 +1,76 @@
+package org.alfresco.rest;
+
+import java.util.List;
+
+/**
+ * Represents the outcome of one search of a multi-search request: its documents, or the error that made it fail.
+ */
+public class MultiSearchResult {
+
+    private List<DocumentBean> documents;
+    private Long took;
+    private String error;
+
+    public MultiSearchResult() {
+    }
+
+    public MultiSearchResult(List<DocumentBean> documents, Long took, String error) {
+        this.documents = documents;
+        this.took = took;
+        this.error = error;
+    }
+
+    /**
+     * Gets the documents matching the search.
+     *
+     * @return the list of documents, or null when the search failed
+     */
+    public List<DocumentBean> getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Sets the documents matching the search.
+     *
+     * @param documents the list of documents
+     */
+    public void setDocuments(List<DocumentBean> documents) {
+        this.documents = documents;
+    }
+
+    /**
+     * Gets the time OpenSearch spent on the search.
+     *
+     * @return the duration in milliseconds, or null when the search failed
+     */
+    public Long getTook() {
+        return took;
+    }
+
+    /**
+     * Sets the time OpenSearch spent on the search.
+     *
+     * @param took the duration in milliseconds
+     */
+    public void setTook(Long took) {
+        this.took = took;
+    }
+
+    /**
+     * Gets the reason why the search failed.
+     *
+     * @return the error message, or null when the search succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Sets the reason why the search failed.
+     *
+     * @param error the error message
+     */
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,85 @@
+package org.alfresco.rest;
+
+/**
+ * Represents the readiness of the search service: whether OpenSearch is configured and the model deployed.
+ */
+public class ReadinessBean {
+
+    private boolean ready;
+    private boolean configured;
+    private boolean modelDeployed;
+    private String modelId;
+    private String modelGroupId;
+    private String error;
+
+    public ReadinessBean() {
+    }
+
+    public ReadinessBean(boolean ready, boolean configured, boolean modelDeployed, String modelId, String modelGroupId,
+                         String error) {
+        this.ready = ready;
+        this.configured = configured;
+        this.modelDeployed = modelDeployed;
+        this.modelId = modelId;
+        this.modelGroupId = modelGroupId;
+        this.error = error;
+    }
+
+    /**
+     * Checks whether documents can be indexed and searched.
+     *
+     * @return true if OpenSearch is configured and the model deployed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void setReady(boolean ready) {
+        this.ready = ready;
+    }
+
+    public boolean isConfigured() {
+        return configured;
+    }
+
+    public void setConfigured(boolean configured) {
+        this.configured = configured;
+    }
+
+    public boolean isModelDeployed() {
+        return modelDeployed;
+    }
+
+    public void setModelDeployed(boolean modelDeployed) {
+        this.modelDeployed = modelDeployed;
+    }
+
+    public String getModelId() {
+        return modelId;
+    }
+
+    public void setModelId(String modelId) {
+        this.modelId = modelId;
+    }
+
+    public String getModelGroupId() {
+        return modelGroupId;
+    }
+
+    public void setModelGroupId(String modelGroupId) {
+        this.modelGroupId = modelGroupId;
+    }
+
+    /**
+     * Gets the error of the last attempt to configure OpenSearch.
+     *
+     * @return the error message, or null
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,33 @@
+package org.alfresco.rest;
+
+import org.alfresco.opensearch.index.OpenSearchConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller exposing the readiness of the search service, for load balancers and container orchestrators.
+ */
+@RestController
+public class ReadinessController {
+
+    @Autowired
+    private OpenSearchConfiguration openSearchConfiguration;
+
+    /**
+     * Gets the readiness of the search service.
+     *
+     * @return the readiness, with status 200 when ready and 503 otherwise
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<ReadinessBean> ready() {
+        ReadinessBean readiness = new ReadinessBean(openSearchConfiguration.isReady(),
+                openSearchConfiguration.isConfigured(), openSearchConfiguration.isModelDeployed(),
+                openSearchConfiguration.getModelId(), openSearchConfiguration.getModelGroupId(),
+                openSearchConfiguration.getError());
+        return ResponseEntity.status(readiness.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(readiness);
+    }
+}
@@ -0,0 +1,31 @@
+package org.alfresco.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps the errors of the REST controllers to HTTP statuses. Invalid client input, such as a bad k, filter,
+ * hybrid weight, cursor or page size, is reported with an {@link IllegalArgumentException} and answered with
+ * status 400 instead of 500.
+ */
+@RestControllerAdvice
+public class RestExceptionHandler {
+
+    static final Logger LOG = LoggerFactory.getLogger(RestExceptionHandler.class);
+
+    /**
+     * Answers invalid requests with status 400 and the reason of the rejection.
+     *
+     * @param e the validation error
+     * @return the problem detail of the response
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ProblemDetail handleIllegalArgument(IllegalArgumentException e) {
+        LOG.debug("Invalid request: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
@@ -1,16 +1,39 @@
 package org.alfresco.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.alfresco.opensearch.search.DocumentScoring;
+import org.alfresco.opensearch.search.HybridOptions;
+import org.alfresco.opensearch.search.KnnOptions;
+import org.alfresco.opensearch.search.MultiSearchQuery;
 import org.alfresco.opensearch.search.Search;
+import org.alfresco.opensearch.search.SearchOptions;
+import org.alfresco.security.AuthenticationFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Controller class for handling search requests.
@@ -20,19 +43,259 @@ import java.util.List;
 public class SearchController {
     private static final Logger LOG = LoggerFactory.getLogger(SearchController.class);
 
+    // Extra time given to the servlet container before it times out an asynchronous search request
+    private static final long ASYNC_TIMEOUT_MARGIN_MS = 1000;
+
+    // Formats of streamed search results
+    private static final String NDJSON = "ndjson";
+    private static final String SSE = "sse";
+
     private final Search search;
 
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${opensearch.search.timeout:30s}")
+    private Duration searchTimeout;
+
     @Autowired
     public SearchController(Search search) {
         this.search = search;
     }
 
+    /**
+     * Handles search requests asynchronously: the servlet thread is released while the query is embedded and
+     * searched, and the request is completed from the OpenSearch client threads. When the timeout is reached
+     * or the client disconnects, the pending requests to OpenSearch are cancelled.
+     *
+     * @param query      the search query string
+     * @param searchType the type of search to perform
+     * @param size       the number of results, the configured default when not set
+     * @param timeout    the maximum duration of the search in milliseconds, the configured default when not set
+     * @return the deferred list of documents matching the query
+     */
     @GetMapping
-    public List<DocumentBean> search(
+    public DeferredResult<List<DocumentBean>> search(
             @RequestParam String query, 
-            @RequestParam(defaultValue = "neural") String searchType) throws Exception {
+            @RequestParam(defaultValue = "neural") String searchType,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Long timeout,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "false") boolean snippets,
+            @RequestParam(required = false) Boolean collapse,
+            @RequestParam(required = false) String scoring,
+            @RequestParam(required = false) Integer passages,
+            @RequestParam(required = false) List<Double> weights,
+            @RequestParam(required = false) String normalization,
+            @RequestParam(required = false) String combination) throws Exception {
+
+        SearchOptions options = buildOptions(fields, snippets, collapse, scoring, passages, weights, normalization,
+                combination).size(size).build();
+        return searchAsync(query, searchType, options, timeout);
+    }
+
+    /**
+     * Handles search requests with a typed body, which also sets the kNN settings and filters of the search,
+     * so that every caller can trade recall against latency. Searches are run asynchronously as GET requests.
+     *
+     * @param request the search request
+     * @return the deferred list of documents matching the query
+     */
+    @PostMapping
+    public DeferredResult<List<DocumentBean>> search(@RequestBody SearchRequest request) {
+        return searchAsync(request.getQuery(), request.getSearchType(), toOptions(request), request.getTimeout());
+    }
+
+    /**
+     * Handles batches of searches, for instance the same query with several search types, sent to OpenSearch
+     * in a single "_msearch" request. When ACL is enabled, the authorities of the authenticated user are
+     * resolved once and filter every search. The timeout of every search is not used.
+     *
+     * @param requests the searches to run
+     * @param username the authenticated user, set by the {@link AuthenticationFilter} when ACL is enabled
+     * @return the result of every search in request order, with the OpenSearch and total durations
+     * @throws Exception if the multi-search request fails
+     */
+    @PostMapping("/multi")
+    public MultiSearchResponse multiSearch(
+            @RequestBody List<SearchRequest> requests,
+            @RequestAttribute(name = AuthenticationFilter.USERNAME_ATTRIBUTE, required = false) String username)
+            throws Exception {
+        long start = System.nanoTime();
+        List<MultiSearchQuery> queries = requests.stream()
+                .map(request -> new MultiSearchQuery(request.getQuery(), request.getSearchType(), toOptions(request)))
+                .toList();
+        List<MultiSearchResult> results = search.multiSearch(queries, username);
+        return new MultiSearchResponse(results, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * Converts a typed search request to search options, after checking that it holds a query.
+     *
+     * @param request the search request
+     * @return the search options
+     */
+    private SearchOptions toOptions(SearchRequest request) {
+        if (request.getQuery() == null || request.getQuery().isBlank()) {
+            throw new IllegalArgumentException("Query is required");
+        }
+        return buildOptions(request.getFields(), request.isSnippets(), request.getCollapse(),
+                request.getScoring(), request.getPassages(), request.getWeights(), request.getNormalization(),
+                request.getCombination())
+                .size(request.getSize())
+                .knn(new KnnOptions(request.getK(), request.getMinScore(), request.getMaxDistance(), request.getEfSearch()))
+                .filters(request.getFilters())
+                .build();
+    }
+
+    /**
+     * Runs a search asynchronously, completing the returned deferred result from the OpenSearch client threads.
+     *
+     * @param query      the search query string
+     * @param searchType the type of search to perform
+     * @param options    the search options
+     * @param timeout    the maximum duration of the search in milliseconds, or null for the configured default
+     * @return the deferred list of documents matching the query
+     */
+    private DeferredResult<List<DocumentBean>> searchAsync(String query, String searchType, SearchOptions options,
+                                                           Long timeout) {
+        Duration searchDuration = timeout != null ? Duration.ofMillis(timeout) : searchTimeout;
+        CompletableFuture<List<DocumentBean>> future = search.searchAsync(query, searchType, options, searchDuration);
+
+        // The servlet timeout is a safety net, the search timeout is expected to be reached first
+        DeferredResult<List<DocumentBean>> result = new DeferredResult<>(searchDuration.toMillis() + ASYNC_TIMEOUT_MARGIN_MS);
+        result.onTimeout(() -> future.cancel(true));
+        result.onError(error -> future.cancel(true));
+        future.whenComplete((documents, error) -> {
+            if (error == null) {
+                result.setResult(documents);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof TimeoutException) {
+                    LOG.warn("Search timed out for query: {}", query);
+                    result.setErrorResult(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Search timed out"));
+                } else {
+                    result.setErrorResult(cause);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Handles paginated search requests. The first page is requested with the query and page size,
+     * following pages with the cursor returned by the previous page and the same options.
+     *
+     * @param query      the search query string, required for the first page
+     * @param searchType the type of search to perform, for the first page
+     * @param size       the number of results per page, for the first page
+     * @param cursor     the cursor returned by the previous page
+     * @return the page of results, with the cursor of the next page unless this is the last page
+     * @throws Exception if an error occurs during the search
+     */
+    @GetMapping("/page")
+    public SearchPage searchPage(
+            @RequestParam(required = false) String query,
+            @RequestParam(defaultValue = "neural") String searchType,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "false") boolean snippets,
+            @RequestParam(required = false) Boolean collapse,
+            @RequestParam(required = false) String scoring,
+            @RequestParam(required = false) Integer passages,
+            @RequestParam(required = false) List<Double> weights,
+            @RequestParam(required = false) String normalization,
+            @RequestParam(required = false) String combination) throws Exception {
+
+        if (query == null && cursor == null) {
+            throw new IllegalArgumentException("Either query or cursor is required");
+        }
+        SearchOptions options = buildOptions(fields, snippets, collapse, scoring, passages, weights, normalization,
+                combination).build();
+        return search.searchPage(query, searchType, options, size, cursor);
+    }
+
+    /**
+     * Handles streamed search requests: every document is written and flushed as soon as its hit is parsed
+     * from the OpenSearch response, either as newline-delimited JSON or as server-sent events.
+     * Server-sent events name every document "document", and end the stream with an "end" event,
+     * or with an "error" event when the search fails after the response has started.
+     *
+     * @param query      the search query string
+     * @param searchType the type of search to perform
+     * @param format     the format of the stream, "ndjson" or "sse"
+     * @param size       the number of results to stream, the configured default when not set
+     * @return the streamed documents matching the query
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> searchStream(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "neural") String searchType,
+            @RequestParam(defaultValue = NDJSON) String format,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(defaultValue = "false") boolean snippets,
+            @RequestParam(required = false) Boolean collapse,
+            @RequestParam(required = false) String scoring,
+            @RequestParam(required = false) Integer passages,
+            @RequestParam(required = false) List<Double> weights,
+            @RequestParam(required = false) String normalization,
+            @RequestParam(required = false) String combination) {
+
+        boolean sse = switch (format.toLowerCase()) {
+            case NDJSON -> false;
+            case SSE -> true;
+            default -> throw new IllegalArgumentException("Unsupported stream format: " + format);
+        };
+        SearchOptions options = buildOptions(fields, snippets, collapse, scoring, passages, weights, normalization,
+                combination).size(size).build();
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                search.searchStream(query, searchType, options, document -> {
+                    byte[] json = objectMapper.writeValueAsBytes(document);
+                    if (sse) {
+                        writeEvent(outputStream, "document", json);
+                    } else {
+                        outputStream.write(json);
+                        outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                });
+                if (sse) {
+                    writeEvent(outputStream, "end", "{}".getBytes(StandardCharsets.UTF_8));
+                    outputStream.flush();
+                }
+            } catch (Exception e) {
+                LOG.error("Streamed search failed for query: {}", query, e);
+                if (!sse) {
+                    throw e;
+                }
+                writeEvent(outputStream, "error", objectMapper.writeValueAsBytes(
+                        objectMapper.createObjectNode().put("message", e.getMessage())));
+                outputStream.flush();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static void writeEvent(OutputStream outputStream, String event, byte[] data) throws IOException {
+        outputStream.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+        outputStream.write(data);
+        outputStream.write("\n\n".getBytes(StandardCharsets.UTF_8));
+    }
 
-        // For now, just use the existing search method
-        return search.search(query, searchType);
+    private SearchOptions.Builder buildOptions(List<String> fields, boolean snippets, Boolean collapse, String scoring,
+                                               Integer passages, List<Double> weights, String normalization,
+                                               String combination) {
+        return SearchOptions.builder()
+                .fields(fields)
+                .snippets(snippets)
+                .collapse(collapse)
+                .scoring(scoring == null ? null : DocumentScoring.fromName(scoring))
+                .passages(passages)
+                .hybrid(new HybridOptions(weights, normalization, combination));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package org.alfresco.rest;
+
+import java.util.List;
+
+/**
+ * Represents a page of search results, with the cursor to fetch the next page.
+ */
+public class SearchPage {
+
+    private List<DocumentBean> documents;
+    private String cursor;
+
+    public SearchPage() {
+    }
+
+    public SearchPage(List<DocumentBean> documents, String cursor) {
+        this.documents = documents;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Gets the documents of the page.
+     *
+     * @return the list of documents
+     */
+    public List<DocumentBean> getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Sets the documents of the page.
+     *
+     * @param documents the list of documents
+     */
+    public void setDocuments(List<DocumentBean> documents) {
+        this.documents = documents;
+    }
+
+    /**
+     * Gets the opaque cursor to pass to get the next page.
+     *
+     * @return the cursor, or null on the last page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Sets the opaque cursor to pass to get the next page.
+     *
+     * @param cursor the cursor
+     */
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
@@ -0,0 +1,168 @@
+package org.alfresco.rest;
+
+import org.alfresco.opensearch.search.SearchFilter;
+
+import java.util.List;
+
+/**
+ * Body of a search request, with the number of results, the kNN settings and the filters of the search
+ * in addition to the options of the GET search endpoint. Unset values fall back to the configured defaults.
+ */
+public class SearchRequest {
+    private String query;
+    private String searchType = "neural";
+    private Integer size;
+    private Integer k;
+    private Float minScore;
+    private Float maxDistance;
+    private Integer efSearch;
+    private List<SearchFilter> filters;
+    private List<String> fields;
+    private boolean snippets;
+    private Boolean collapse;
+    private String scoring;
+    private Integer passages;
+    private List<Double> weights;
+    private String normalization;
+    private String combination;
+    private Long timeout;
+
+    public SearchRequest() {
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getSearchType() {
+        return searchType;
+    }
+
+    public void setSearchType(String searchType) {
+        this.searchType = searchType;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public Integer getK() {
+        return k;
+    }
+
+    public void setK(Integer k) {
+        this.k = k;
+    }
+
+    public Float getMinScore() {
+        return minScore;
+    }
+
+    public void setMinScore(Float minScore) {
+        this.minScore = minScore;
+    }
+
+    public Float getMaxDistance() {
+        return maxDistance;
+    }
+
+    public void setMaxDistance(Float maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    public Integer getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(Integer efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    public List<SearchFilter> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(List<SearchFilter> filters) {
+        this.filters = filters;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public void setFields(List<String> fields) {
+        this.fields = fields;
+    }
+
+    public boolean isSnippets() {
+        return snippets;
+    }
+
+    public void setSnippets(boolean snippets) {
+        this.snippets = snippets;
+    }
+
+    public Boolean getCollapse() {
+        return collapse;
+    }
+
+    public void setCollapse(Boolean collapse) {
+        this.collapse = collapse;
+    }
+
+    public String getScoring() {
+        return scoring;
+    }
+
+    public void setScoring(String scoring) {
+        this.scoring = scoring;
+    }
+
+    public Integer getPassages() {
+        return passages;
+    }
+
+    public void setPassages(Integer passages) {
+        this.passages = passages;
+    }
+
+    public List<Double> getWeights() {
+        return weights;
+    }
+
+    public void setWeights(List<Double> weights) {
+        this.weights = weights;
+    }
+
+    public String getNormalization() {
+        return normalization;
+    }
+
+    public void setNormalization(String normalization) {
+        this.normalization = normalization;
+    }
+
+    public String getCombination() {
+        return combination;
+    }
+
+    public void setCombination(String combination) {
+        this.combination = combination;
+    }
+
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Long timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,71 @@
+package org.alfresco.rest;
+
+import java.util.List;
+
+/**
+ * Bounded excerpt of a segment text, returned instead of the full text, with its position in the segment
+ * and the positions of the query terms it holds.
+ */
+public class Snippet {
+    private String text;
+    private int start;
+    private int end;
+    private List<int[]> highlights;
+
+    public Snippet() {
+    }
+
+    public Snippet(String text, int start, int end, List<int[]> highlights) {
+        this.text = text;
+        this.start = start;
+        this.end = end;
+        this.highlights = highlights;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Gets the offset of the snippet in the segment text.
+     *
+     * @return the offset of the first character, or -1 when the snippet could not be located in the segment
+     */
+    public int getStart() {
+        return start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    /**
+     * Gets the end offset of the snippet in the segment text.
+     *
+     * @return the offset following the last character, or -1 when the snippet could not be located in the segment
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    public void setEnd(int end) {
+        this.end = end;
+    }
+
+    /**
+     * Gets the positions of the query terms in the snippet text.
+     *
+     * @return the start and end offsets of every term, relative to the snippet text
+     */
+    public List<int[]> getHighlights() {
+        return highlights;
+    }
+
+    public void setHighlights(List<int[]> highlights) {
+        this.highlights = highlights;
+    }
+}
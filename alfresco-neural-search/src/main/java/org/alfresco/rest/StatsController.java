@@ -0,0 +1,60 @@
+package org.alfresco.rest;
+
+import org.alfresco.opensearch.index.InferenceNodeStats;
+import org.alfresco.opensearch.index.ModelDeployment;
+import org.alfresco.opensearch.index.OpenSearchConfiguration;
+import org.alfresco.opensearch.search.QueryEmbeddings;
+import org.alfresco.opensearch.search.SearchResultCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Controller exposing runtime statistics of the search service.
+ */
+@RestController
+@RequestMapping("/stats")
+public class StatsController {
+
+    @Autowired
+    private QueryEmbeddings queryEmbeddings;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private ModelDeployment modelDeployment;
+
+    @Autowired
+    private OpenSearchConfiguration openSearchConfiguration;
+
+    /**
+     * Gets the size and hit rate of the query embedding and search result caches.
+     *
+     * @return the statistics of every cache
+     */
+    @GetMapping("/caches")
+    public List<CacheStatsBean> caches() {
+        return List.of(
+                new CacheStatsBean("queryEmbeddings", queryEmbeddings.getSize(), null, queryEmbeddings.getStats()),
+                new CacheStatsBean("searchResults", searchResultCache.getSize(), searchResultCache.getWeightedSize(),
+                        searchResultCache.getStats()));
+    }
+
+    /**
+     * Gets the inference statistics of every OpenSearch node: the threads, the queue depth and the rejections
+     * of its predict thread pool, and whether the model is deployed on it.
+     *
+     * @return the inference statistics of every node, empty until OpenSearch is configured
+     * @throws IOException if the statistics cannot be read
+     */
+    @GetMapping("/inference")
+    public List<InferenceNodeStats> inference() throws IOException {
+        String modelId = openSearchConfiguration.getModelId();
+        return modelId == null ? List.of() : modelDeployment.getInferenceStats(modelId);
+    }
+}
@@ -22,6 +22,11 @@ import java.util.Base64;
 public class AuthenticationFilter extends OncePerRequestFilter {
     private static final Logger LOG = LoggerFactory.getLogger(AuthenticationFilter.class);
 
+    /**
+     * Name of the request attribute holding the authenticated username, set when ACL is enabled.
+     */
+    public static final String USERNAME_ATTRIBUTE = "org.alfresco.security.username";
+
     private final AuthenticationService authenticationService;
 
     @Value("${acl.enabled:false}")
@@ -59,6 +64,7 @@ public class AuthenticationFilter extends OncePerRequestFilter {
                     if (authenticationService.authenticate(username, password)) {
                         // Authentication successful
                         LOG.debug("Authentication successful for user: {}", username);
+                        request.setAttribute(USERNAME_ATTRIBUTE, username);
                         filterChain.doFilter(request, response);
                         return;
                     }
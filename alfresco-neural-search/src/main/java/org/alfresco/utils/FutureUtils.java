@@ -0,0 +1,40 @@
+package org.alfresco.utils;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Utility class for {@link CompletableFuture} chains.
+ */
+public class FutureUtils {
+
+    /**
+     * Cancels a source future when a future depending on it completes exceptionally, typically after a timeout
+     * or a cancellation, as {@link CompletableFuture} does not propagate cancellation to the stages it depends on.
+     *
+     * @param dependent the future depending on the source
+     * @param source    the future to cancel
+     * @param <T>       the type of the dependent future
+     * @return the dependent future
+     */
+    public static <T> CompletableFuture<T> propagateCancellation(CompletableFuture<T> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((result, error) -> {
+            if (error != null) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Checks whether a future failed because it was cancelled.
+     *
+     * @param error the exception completing the future
+     * @return true if the future was cancelled
+     */
+    public static boolean isCancellation(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof CancellationException;
+    }
+}
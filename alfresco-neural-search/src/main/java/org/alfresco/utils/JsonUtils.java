@@ -1,5 +1,8 @@
 package org.alfresco.utils;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * Utility class for JSON operations.
  */
@@ -42,6 +45,29 @@ public class JsonUtils {
         return result.toString();
     }
 
+    /**
+     * Formats a list of strings as a JSON array of escaped string values.
+     */
+    public static String toJsonArray(List<String> values) {
+        return values.stream()
+                .map(value -> "\"" + escape(value) + "\"")
+                .collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    /**
+     * Formats a vector as a JSON array of numbers.
+     */
+    public static String toJsonArray(float[] vector) {
+        StringBuilder result = new StringBuilder(vector.length * 12).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append(vector[i]);
+        }
+        return result.append(']').toString();
+    }
+
     /**
      * Replaces Unicode characters in a string.
      */